@@ -3,14 +3,19 @@ package com.leisurexi.rpc.client;
 import com.leisurexi.rpc.client.connect.ConnectionManager;
 import com.leisurexi.rpc.client.proxy.ObjectProxy;
 import com.leisurexi.rpc.client.proxy.RpcService;
+import com.leisurexi.rpc.client.route.LoadBalanceType;
+import com.leisurexi.rpc.client.route.RpcLoadBalance;
 import com.leisurexi.rpc.common.client.ProviderInfo;
+import com.leisurexi.rpc.common.compress.CompressionType;
+import com.leisurexi.rpc.common.filter.RpcFilter;
 import com.leisurexi.rpc.common.registry.Registry;
+import com.leisurexi.rpc.common.serializer.Serializer;
 import com.leisurexi.rpc.common.util.ThreadPoolUtils;
 
 import java.lang.reflect.Proxy;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * RPC Client 创建RPC代理
@@ -20,7 +25,10 @@ import java.util.concurrent.ThreadPoolExecutor;
  */
 public class RpcClient {
 
-    private static ThreadPoolExecutor threadPoolExecutor = ThreadPoolUtils.createThreadPool("client", 10, 20);
+    /**
+     * 异步回调线程池
+     */
+    private static volatile ExecutorService threadPoolExecutor = ThreadPoolUtils.createThreadPool("client", 10, 20);
 
     private Registry registry;
 
@@ -28,17 +36,99 @@ public class RpcClient {
         this.registry = registry;
     }
 
+    /**
+     * 设置序列化方式，需要在创建服务之前调用
+     *
+     * @param serializer 序列化方式
+     */
+    public void setSerializer(Serializer serializer) {
+        ConnectionManager.getInstance().setSerializer(serializer);
+    }
+
+    /**
+     * 添加客户端过滤器，按添加顺序执行，需要在创建服务之前调用
+     *
+     * @param filter 过滤器
+     */
+    public void addFilter(RpcFilter filter) {
+        ConnectionManager.getInstance().addFilter(filter);
+    }
+
     public <T> T createService(Class<T> interfaceClass, String version) {
+        return createService(interfaceClass, version, CompressionType.NONE);
+    }
+
+    /**
+     * 创建服务代理，请求和响应按指定的方式压缩
+     *
+     * @param interfaceClass 接口类型
+     * @param version        版本号
+     * @param compression    压缩方式
+     */
+    public <T> T createService(Class<T> interfaceClass, String version, CompressionType compression) {
+        return createService(interfaceClass, version, compression, LoadBalanceType.ROUND_ROBIN);
+    }
+
+    /**
+     * 创建服务代理，按指定的负载均衡策略选择服务提供者
+     *
+     * @param interfaceClass  接口类型
+     * @param version         版本号
+     * @param compression     压缩方式
+     * @param loadBalanceType 负载均衡策略
+     */
+    public <T> T createService(Class<T> interfaceClass, String version, CompressionType compression,
+                               LoadBalanceType loadBalanceType) {
+        return createService(interfaceClass, version, compression, loadBalanceType.createLoadBalance());
+    }
+
+    /**
+     * 创建服务代理，使用指定的负载均衡实例，例如以其他参数作为路由 key 的一致性哈希
+     *
+     * @param interfaceClass 接口类型
+     * @param version        版本号
+     * @param compression    压缩方式
+     * @param loadBalance    负载均衡策略
+     */
+    public <T> T createService(Class<T> interfaceClass, String version, CompressionType compression,
+                               RpcLoadBalance loadBalance) {
         List<ProviderInfo> serverList = registry.discovery(interfaceClass.getName());
         ConnectionManager.getInstance().updateConnectedServer(serverList);
         return (T) Proxy.newProxyInstance(
                 interfaceClass.getClassLoader(),
                 new Class[]{interfaceClass},
-                new ObjectProxy<>(interfaceClass, version));
+                new ObjectProxy<>(interfaceClass, version, compression, loadBalance));
     }
 
     public <T> RpcService createAsyncService(Class<T> interfaceClass, String version) {
-        return new ObjectProxy<>(interfaceClass, version);
+        return createAsyncService(interfaceClass, version, CompressionType.NONE);
+    }
+
+    public <T> RpcService createAsyncService(Class<T> interfaceClass, String version, CompressionType compression) {
+        return createAsyncService(interfaceClass, version, compression, LoadBalanceType.ROUND_ROBIN);
+    }
+
+    public <T> RpcService createAsyncService(Class<T> interfaceClass, String version, CompressionType compression,
+                                             LoadBalanceType loadBalanceType) {
+        return createAsyncService(interfaceClass, version, compression, loadBalanceType.createLoadBalance());
+    }
+
+    public <T> RpcService createAsyncService(Class<T> interfaceClass, String version, CompressionType compression,
+                                             RpcLoadBalance loadBalance) {
+        return new ObjectProxy<>(interfaceClass, version, compression, loadBalance);
+    }
+
+    /**
+     * 开启虚拟线程模式，异步回调在独立的虚拟线程中执行，不再受回调线程池队列长度的限制，需要 JDK 21 及以上版本。
+     * 同步调用在 {@link com.leisurexi.rpc.client.handler.RpcFuture} 上阻塞等待，虚拟线程等待时不会占用载体线程
+     *
+     * @param enabled 是否开启
+     */
+    public void setVirtualThreadEnabled(boolean enabled) {
+        ExecutorService previous = threadPoolExecutor;
+        threadPoolExecutor = enabled ? ThreadPoolUtils.createVirtualThreadExecutor()
+                : ThreadPoolUtils.createThreadPool("client", 10, 20);
+        previous.shutdown();
     }
 
     public static Future<?> submit(Runnable task) {
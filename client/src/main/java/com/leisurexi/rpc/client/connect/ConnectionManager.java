@@ -1,31 +1,44 @@
 package com.leisurexi.rpc.client.connect;
 
 import com.leisurexi.rpc.client.proxy.RpcClientHandler;
+import com.leisurexi.rpc.client.route.ProviderNode;
+import com.leisurexi.rpc.client.route.RoutingTable;
 import com.leisurexi.rpc.client.route.RpcLoadBalance;
 import com.leisurexi.rpc.client.route.impl.RpcLoadBalanceRoundRobin;
 import com.leisurexi.rpc.common.codec.*;
 import com.leisurexi.rpc.common.client.ProviderInfo;
+import com.leisurexi.rpc.common.filter.RpcFilter;
 import com.leisurexi.rpc.common.serializer.Serializer;
+import com.leisurexi.rpc.common.transport.BatchFlushConfig;
+import com.leisurexi.rpc.common.transport.BatchFlushHandler;
+import com.leisurexi.rpc.common.transport.FlushStats;
+import com.leisurexi.rpc.common.transport.TransportConfig;
+import com.leisurexi.rpc.common.transport.TransportType;
 import com.leisurexi.rpc.common.util.ThreadPoolUtils;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.CollectionUtils;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
@@ -40,16 +53,57 @@ import java.util.concurrent.locks.ReentrantLock;
 @Slf4j
 public class ConnectionManager {
 
-    private EventLoopGroup eventLoopGroup = new NioEventLoopGroup(4);
+    /**
+     * 默认的请求超时时间
+     */
+    public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 30000;
+
+    private volatile EventLoopGroup eventLoopGroup;
+    private volatile TransportType transportType;
     private static ThreadPoolExecutor threadPoolExecutor = ThreadPoolUtils.createThreadPool("connection", 4, 8);
 
-    private Map<ProviderInfo, RpcClientHandler> connectedServerNodes = new ConcurrentHashMap<>();
+    /**
+     * 按服务端地址 host:port 划分的连接池，同一地址上的所有服务共享
+     */
+    private Map<String, ConnectionPool> connectionPools = new ConcurrentHashMap<>();
+    /**
+     * 至少有一个可用连接的服务提供者及其所在地址的连接池
+     */
+    private Map<ProviderInfo, ConnectionPool> connectedServerNodes = new ConcurrentHashMap<>();
+    /**
+     * 由 connectedServerNodes 生成的路由表，节点变化时整体替换
+     */
+    private volatile RoutingTable routingTable = RoutingTable.EMPTY;
     private CopyOnWriteArraySet<ProviderInfo> providerInfoSet = new CopyOnWriteArraySet<>();
     private ReentrantLock lock = new ReentrantLock();
     private Condition connected = lock.newCondition();
     private long waitTimeout = 5000;
     private RpcLoadBalance loadBalance = new RpcLoadBalanceRoundRobin();
     private volatile boolean isRunning = true;
+    private volatile Serializer serializer = Serializer.DEFAULT;
+    private volatile int compressThreshold = RpcProtocol.DEFAULT_COMPRESS_THRESHOLD;
+    private volatile int maxFrameLength = RpcProtocol.DEFAULT_MAX_FRAME_LENGTH;
+    private volatile BatchFlushConfig batchFlushConfig = BatchFlushConfig.DEFAULT;
+    private volatile TransportConfig transportConfig = TransportConfig.builder().workerThreads(4).build();
+    private volatile ConnectionPoolConfig connectionPoolConfig = ConnectionPoolConfig.DEFAULT;
+    private volatile OutlierDetectionConfig outlierDetectionConfig = OutlierDetectionConfig.DEFAULT;
+    /**
+     * 定期检查异常节点的任务，第一个连接池创建时启动
+     */
+    private ScheduledFuture<?> outlierDetectionTask;
+    private final FlushStats flushStats = new FlushStats();
+    /**
+     * 请求超时时间，小于等于 0 时不超时
+     */
+    private volatile long requestTimeoutMillis = DEFAULT_REQUEST_TIMEOUT_MILLIS;
+    /**
+     * 所有连接共享的请求超时定时器，第一次使用时创建
+     */
+    private volatile Timer timeoutTimer;
+    /**
+     * 客户端过滤器，写时复制
+     */
+    private volatile List<RpcFilter> filters = Collections.emptyList();
 
     private ConnectionManager() {
     }
@@ -82,12 +136,7 @@ public class ConnectionManager {
             for (ProviderInfo providerInfo : providerInfoSet) {
                 if (!serviceSet.contains(providerInfo)) {
                     log.warn("Remove invalid service: {}", providerInfo.toString());
-                    RpcClientHandler handler = connectedServerNodes.get(providerInfo);
-                    if (handler != null) {
-                        handler.close();
-                    }
-                    connectedServerNodes.remove(providerInfo);
-                    providerInfoSet.remove(providerInfo);
+                    closeServerNode(providerInfo);
                 }
             }
         } else {
@@ -95,51 +144,218 @@ public class ConnectionManager {
             log.error("No available service!");
             // 关闭并且删除无效的服务节点
             for (ProviderInfo providerInfo : providerInfoSet) {
-                RpcClientHandler handler = connectedServerNodes.get(providerInfo);
-                if (handler != null) {
-                    handler.close();
-                }
-                connectedServerNodes.remove(providerInfo);
-                providerInfoSet.remove(providerInfo);
+                closeServerNode(providerInfo);
             }
         }
     }
 
+    /**
+     * 移除服务提供者，该地址上没有其他服务时关闭连接池
+     *
+     * @param providerInfo 服务提供者
+     */
+    private synchronized void closeServerNode(ProviderInfo providerInfo) {
+        if (connectedServerNodes.remove(providerInfo) != null) {
+            rebuildRoutingTable();
+        }
+        providerInfoSet.remove(providerInfo);
+        ConnectionPool pool = connectionPools.get(providerInfo.getAddress());
+        if (pool != null && pool.removeProvider(providerInfo)) {
+            connectionPools.remove(pool.getAddress());
+            pool.close();
+        }
+    }
+
     /**
      * 连接服务端节点
      *
      * @param providerInfo
      */
-    private void connectServerNode(ProviderInfo providerInfo) {
+    private synchronized void connectServerNode(ProviderInfo providerInfo) {
         log.info("New service: [{}], version: [{}], host: [{}], port: [{}]", providerInfo.getServiceName(),
                 providerInfo.getVersion(), providerInfo.getHost(), providerInfo.getPort());
-        final InetSocketAddress remotePeer = new InetSocketAddress(providerInfo.getHost(), providerInfo.getPort());
+        ConnectionPool pool = connectionPools.get(providerInfo.getAddress());
+        if (pool != null) {
+            // 复用该地址上已有的连接
+            pool.addProvider(providerInfo);
+            if (pool.isAvailable()) {
+                connectedServerNodes.put(providerInfo, pool);
+                rebuildRoutingTable();
+                signalAvailableHandler();
+            }
+            return;
+        }
+        pool = new ConnectionPool(providerInfo.getHost(), providerInfo.getPort(), connectionPoolConfig);
+        pool.addProvider(providerInfo);
+        connectionPools.put(pool.getAddress(), pool);
+        startOutlierDetection();
+        pool.init();
+    }
+
+    /**
+     * 连接建立完成，连接池的第一个连接建立后，该地址上的服务提供者变为可用
+     */
+    private synchronized void onConnected(ConnectionPool pool, RpcClientHandler handler) {
+        handler.setConnectionPool(pool);
+        pool.onConnected(handler);
+        if (connectionPools.get(pool.getAddress()) == pool && pool.isAvailable()) {
+            boolean changed = false;
+            for (ProviderInfo providerInfo : pool.getProviders()) {
+                changed |= connectedServerNodes.put(providerInfo, pool) == null;
+            }
+            if (changed) {
+                rebuildRoutingTable();
+            }
+        }
+    }
+
+    /**
+     * 连接建立失败，连接池中已没有任何连接时移除该地址上的所有服务提供者，注册中心下次推送时重新连接
+     */
+    private synchronized void onConnectFailed(ConnectionPool pool) {
+        if (pool.onConnectFailed() && connectionPools.remove(pool.getAddress(), pool)) {
+            boolean changed = false;
+            for (ProviderInfo providerInfo : pool.getProviders()) {
+                changed |= connectedServerNodes.remove(providerInfo, pool);
+                providerInfoSet.remove(providerInfo);
+            }
+            pool.close();
+            if (changed) {
+                rebuildRoutingTable();
+            }
+        }
+    }
+
+    /**
+     * 服务提供者上下线或摘除状态变化后重建路由表，调用方需持有当前对象的锁
+     */
+    private void rebuildRoutingTable() {
+        this.routingTable = RoutingTable.build(connectedServerNodes);
+    }
+
+    private void startOutlierDetection() {
+        OutlierDetectionConfig config = this.outlierDetectionConfig;
+        if (outlierDetectionTask != null || !config.isEnabled()) {
+            return;
+        }
+        outlierDetectionTask = getEventLoopGroup().scheduleWithFixedDelay(this::detectOutliers,
+                config.getIntervalMillis(), config.getIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 恢复摘除到期的节点，并按服务检查异常节点，摘除状态有变化时重建路由表
+     */
+    private synchronized void detectOutliers() {
+        OutlierDetectionConfig config = this.outlierDetectionConfig;
+        if (!config.isEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        boolean changed = false;
+        for (ConnectionPool pool : connectionPools.values()) {
+            for (ProviderInfo providerInfo : pool.getProviders()) {
+                ProviderStats stats = pool.getStats(providerInfo);
+                if (stats != null && stats.restoreIfExpired(now, config)) {
+                    log.info("Outlier provider {} of {} is back, recovering in {}ms", pool.getAddress(),
+                            providerInfo.getServiceName(), config.getRecoveryMillis());
+                    changed = true;
+                }
+            }
+        }
+        for (List<ProviderNode> nodes : RoutingTable.groupByService(connectedServerNodes).values()) {
+            changed |= detectOutliers(nodes, now, config);
+        }
+        if (changed) {
+            rebuildRoutingTable();
+        }
+    }
+
+    /**
+     * 摘除同一服务中连续出错或响应时间远高于中位数的节点，被摘除的节点不超过配置的比例。
+     * 统计和摘除都只针对该服务，同一地址上的其他服务不受影响
+     *
+     * @return 是否有节点被摘除
+     */
+    private boolean detectOutliers(List<ProviderNode> nodes, long now, OutlierDetectionConfig config) {
+        int maxEjected = nodes.size() * config.getMaxEjectionPercent() / 100;
+        int ejected = 0;
+        List<Double> latencies = new ArrayList<>(nodes.size());
+        for (ProviderNode node : nodes) {
+            ProviderStats stats = node.getStats();
+            if (stats.isEjected()) {
+                ejected++;
+            } else if (stats.getLatencyEwma() > 0) {
+                latencies.add(stats.getLatencyEwma());
+            }
+        }
+        double latencyThreshold = Double.MAX_VALUE;
+        if (latencies.size() >= config.getMinimumHosts()) {
+            Collections.sort(latencies);
+            double median = latencies.get(latencies.size() / 2);
+            latencyThreshold = Math.max(median * config.getLatencyFactor(),
+                    TimeUnit.MILLISECONDS.toNanos(config.getMinOutlierLatencyMillis()));
+        }
+        boolean changed = false;
+        for (ProviderNode node : nodes) {
+            if (ejected >= maxEjected) {
+                break;
+            }
+            ProviderStats stats = node.getStats();
+            if (stats.isEjected()) {
+                continue;
+            }
+            if (stats.getConsecutiveErrors() >= config.getConsecutiveErrors() || stats.getLatencyEwma() > latencyThreshold) {
+                log.warn("Eject outlier provider {} of {}, {}", node.getConnectionPool().getAddress(),
+                        node.getProviderInfo().getServiceName(), stats);
+                stats.eject(now, config);
+                ejected++;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 为连接池新建一个连接
+     *
+     * @param pool 连接池
+     */
+    void openConnection(ConnectionPool pool) {
+        final InetSocketAddress remotePeer = new InetSocketAddress(pool.getHost(), pool.getPort());
         threadPoolExecutor.execute(() -> {
+            TransportConfig config = transportConfig;
+            EventLoopGroup group = getEventLoopGroup();
             Bootstrap bootstrap = new Bootstrap();
-            bootstrap.group(eventLoopGroup)
-                    .channel(NioSocketChannel.class)
-                    .handler(new ChannelInitializer<SocketChannel>() {
-                        @Override
-                        protected void initChannel(SocketChannel socketChannel) throws Exception {
-                            Serializer serializer = Serializer.DEFAULT;
-                            socketChannel.pipeline()
-                                    .addLast(new IdleStateHandler(0, 0, HeartBeat.HEART_BEAT_INTERVAL, TimeUnit.SECONDS))
-                                    .addLast(new RpcEncoder(RpcRequest.class, serializer))
-                                    .addLast(new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 0))
-                                    .addLast(new RpcDecoder(RpcResponse.class, serializer))
-                                    .addLast(new RpcClientHandler());
-                        }
-                    });
+            bootstrap.group(group)
+                    .channel(transportType.getChannelClass())
+                    .option(ChannelOption.TCP_NODELAY, config.isTcpNoDelay());
+            if (config.getSendBufferSize() > 0) {
+                bootstrap.option(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+            }
+            if (config.getReceiveBufferSize() > 0) {
+                bootstrap.option(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+            }
+            bootstrap.handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel socketChannel) throws Exception {
+                    socketChannel.pipeline()
+                            .addLast(new IdleStateHandler(0, 0, HeartBeat.HEART_BEAT_INTERVAL, TimeUnit.SECONDS))
+                            .addLast(new BatchFlushHandler(batchFlushConfig, flushStats))
+                            .addLast(new RpcEncoder(serializer, compressThreshold))
+                            .addLast(new RpcDecoder(serializer, maxFrameLength))
+                            .addLast(new RpcClientHandler());
+                }
+            });
             ChannelFuture channelFuture = bootstrap.connect(remotePeer);
             channelFuture.addListener(future -> {
                 if (future.isSuccess()) {
                     log.info("Successfully connect to remote server, remote peer = {}", remotePeer);
                     RpcClientHandler handler = channelFuture.channel().pipeline().get(RpcClientHandler.class);
-                    connectedServerNodes.put(providerInfo, handler);
-                    handler.setProviderInfo(providerInfo);
+                    onConnected(pool, handler);
                     signalAvailableHandler();
                 } else {
                     log.error("Can not connect to remote server, remote peer = " + remotePeer);
+                    onConnectFailed(pool);
                 }
             });
         });
@@ -165,43 +381,262 @@ public class ConnectionManager {
     }
 
     public RpcClientHandler chooseHandler(String serviceKey) throws Exception {
-        int size = connectedServerNodes.values().size();
-        while (isRunning && size <= 0) {
+        return chooseHandler(serviceKey, loadBalance);
+    }
+
+    /**
+     * 按指定的负载均衡策略选择服务提供者，并从其连接池中选择连接
+     *
+     * @param serviceKey  业务 key
+     * @param loadBalance 负载均衡策略
+     * @return 连接
+     * @throws Exception 没有可用的连接
+     */
+    public RpcClientHandler chooseHandler(String serviceKey, RpcLoadBalance loadBalance) throws Exception {
+        return chooseHandler(serviceKey, loadBalance, null);
+    }
+
+    /**
+     * 按指定的负载均衡策略和请求内容选择服务提供者，并从其连接池中选择连接
+     *
+     * @param serviceKey  业务 key
+     * @param loadBalance 负载均衡策略
+     * @param request     待发送的请求，可以为 null
+     * @return 连接
+     * @throws Exception 没有可用的连接
+     */
+    public RpcClientHandler chooseHandler(String serviceKey, RpcLoadBalance loadBalance, RpcRequest request) throws Exception {
+        return chooseHandler(chooseNode(serviceKey, loadBalance, request));
+    }
+
+    /**
+     * 按指定的负载均衡策略和请求内容选择服务提供者，没有已连接的服务提供者时等待
+     *
+     * @param serviceKey  业务 key
+     * @param loadBalance 负载均衡策略
+     * @param request     待发送的请求，可以为 null
+     * @return 服务提供者节点
+     * @throws Exception 没有可用的服务提供者
+     */
+    public ProviderNode chooseNode(String serviceKey, RpcLoadBalance loadBalance, RpcRequest request) throws Exception {
+        RoutingTable routingTable = this.routingTable;
+        while (isRunning && routingTable.isEmpty()) {
             try {
                 waitingForHandler();
-                size = connectedServerNodes.values().size();
+                routingTable = this.routingTable;
             } catch (InterruptedException e) {
                 log.error("Waiting for available service is interrupted!", e);
             }
         }
-        ProviderInfo providerInfo = loadBalance.select(serviceKey, connectedServerNodes);
-        RpcClientHandler handler = connectedServerNodes.get(providerInfo);
+        return loadBalance.select(serviceKey, routingTable, request);
+    }
+
+    /**
+     * 从服务提供者所在地址的连接池中选择连接
+     *
+     * @param node 服务提供者节点
+     * @return 连接
+     * @throws Exception 没有可用的连接
+     */
+    public RpcClientHandler chooseHandler(ProviderNode node) throws Exception {
+        RpcClientHandler handler = node.getConnectionPool().select();
         if (handler != null) {
             return handler;
         }
         throw new Exception("Can not get available connection");
     }
 
-    public void removeHandler(ProviderInfo providerInfo) {
-        if (providerInfo != null) {
-            providerInfoSet.remove(providerInfo);
-            connectedServerNodes.remove(providerInfo);
+    /**
+     * 连接断开时从连接池中移除，连接池中没有连接时移除该地址上的所有服务提供者
+     *
+     * @param handler 断开的连接
+     */
+    public synchronized void removeHandler(RpcClientHandler handler) {
+        ConnectionPool pool = handler.getConnectionPool();
+        if (pool != null && pool.removeHandler(handler)) {
+            connectionPools.remove(pool.getAddress(), pool);
+            for (ProviderInfo providerInfo : pool.getProviders()) {
+                connectedServerNodes.remove(providerInfo, pool);
+                providerInfoSet.remove(providerInfo);
+            }
+            rebuildRoutingTable();
         }
     }
 
+    /**
+     * 设置序列化方式，对之后新建立的连接生效，服务端按请求使用的序列化方式响应
+     *
+     * @param serializer 序列化方式
+     */
+    public void setSerializer(Serializer serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * 设置压缩阈值，序列化后小于该字节数的请求不压缩，对之后新建立的连接生效
+     *
+     * @param compressThreshold 压缩阈值
+     */
+    public void setCompressThreshold(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    /**
+     * 设置响应消息体长度上限，超过上限的响应会被丢弃，对应的调用以错误码为
+     * {@link com.leisurexi.rpc.common.codec.RpcErrorCode#FRAME_TOO_LONG} 的错误响应结束，对之后新建立的连接生效
+     *
+     * @param maxFrameLength 消息体长度上限
+     */
+    public void setMaxFrameLength(int maxFrameLength) {
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    /**
+     * 设置每个服务端地址的连接池配置，对之后新建的连接池生效
+     *
+     * @param connectionPoolConfig 连接池配置
+     */
+    public void setConnectionPoolConfig(ConnectionPoolConfig connectionPoolConfig) {
+        this.connectionPoolConfig = connectionPoolConfig;
+    }
+
+    /**
+     * 设置异常节点摘除配置，检查间隔需要在创建服务之前设置
+     *
+     * @param outlierDetectionConfig 异常节点摘除配置
+     */
+    public void setOutlierDetectionConfig(OutlierDetectionConfig outlierDetectionConfig) {
+        this.outlierDetectionConfig = outlierDetectionConfig;
+    }
+
+    /**
+     * 获取每个服务提供者的调用统计
+     *
+     * @return 服务提供者到调用统计的映射
+     */
+    public Map<ProviderInfo, ProviderStats> getProviderStats() {
+        Map<ProviderInfo, ProviderStats> stats = new HashMap<>();
+        for (ConnectionPool pool : connectionPools.values()) {
+            for (ProviderInfo providerInfo : pool.getProviders()) {
+                ProviderStats providerStats = pool.getStats(providerInfo);
+                if (providerStats != null) {
+                    stats.put(providerInfo, providerStats);
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * 设置请求超时时间，超时未收到响应的请求以 {@link com.leisurexi.rpc.common.exception.RpcTimeoutException} 结束，
+     * 对之后发出的请求生效
+     *
+     * @param requestTimeoutMillis 请求超时时间，小于等于 0 时不超时
+     */
+    public void setRequestTimeoutMillis(long requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    public long getRequestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    /**
+     * 获取请求超时定时器，时间轮添加和取消超时任务都是 O(1) 的，精度为一个刻度 10ms
+     */
+    public Timer getTimeoutTimer() {
+        Timer timer = timeoutTimer;
+        if (timer == null) {
+            synchronized (this) {
+                timer = timeoutTimer;
+                if (timer == null) {
+                    timer = new HashedWheelTimer(new DefaultThreadFactory("rpc-client-timeout", true),
+                            10, TimeUnit.MILLISECONDS, 512);
+                    timeoutTimer = timer;
+                }
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * 添加客户端过滤器，按添加顺序执行，对之后创建的服务生效
+     *
+     * @param filter 过滤器
+     */
+    public synchronized void addFilter(RpcFilter filter) {
+        List<RpcFilter> copy = new ArrayList<>(filters);
+        copy.add(filter);
+        this.filters = Collections.unmodifiableList(copy);
+    }
+
+    public List<RpcFilter> getFilters() {
+        return filters;
+    }
+
+    /**
+     * 设置批量 flush 配置，对之后新建立的连接生效
+     *
+     * @param batchFlushConfig 批量 flush 配置
+     */
+    public void setBatchFlushConfig(BatchFlushConfig batchFlushConfig) {
+        this.batchFlushConfig = batchFlushConfig;
+    }
+
+    /**
+     * 获取 flush 统计，可用于观察平均每次 flush 写出的请求数
+     */
+    public FlushStats getFlushStats() {
+        return flushStats;
+    }
+
+    /**
+     * 设置网络传输配置，使用其中的传输实现、IO 线程数和套接字参数，需要在建立连接之前调用
+     *
+     * @param transportConfig 网络传输配置
+     */
+    public void setTransportConfig(TransportConfig transportConfig) {
+        this.transportConfig = transportConfig;
+    }
+
+    /**
+     * 第一次建立连接时按传输配置创建事件循环组，所有连接共享
+     */
+    private EventLoopGroup getEventLoopGroup() {
+        EventLoopGroup group = eventLoopGroup;
+        if (group == null) {
+            synchronized (this) {
+                group = eventLoopGroup;
+                if (group == null) {
+                    TransportConfig config = transportConfig;
+                    transportType = TransportType.select(config);
+                    group = transportType.newEventLoopGroup(config.getWorkerThreads(), "rpc-client-io");
+                    eventLoopGroup = group;
+                    log.info("Client transport: {}", transportType);
+                }
+            }
+        }
+        return group;
+    }
+
     public void stop() {
         isRunning = false;
-        for (ProviderInfo providerInfo : providerInfoSet) {
-            RpcClientHandler handler = connectedServerNodes.get(providerInfo);
-            if (handler != null) {
-                handler.close();
+        synchronized (this) {
+            if (outlierDetectionTask != null) {
+                outlierDetectionTask.cancel(false);
             }
-            connectedServerNodes.remove(providerInfo);
-            providerInfoSet.remove(providerInfo);
+        }
+        for (ProviderInfo providerInfo : providerInfoSet) {
+            closeServerNode(providerInfo);
         }
         signalAvailableHandler();
         threadPoolExecutor.shutdown();
-        eventLoopGroup.shutdownGracefully();
+        if (timeoutTimer != null) {
+            timeoutTimer.stop();
+        }
+        if (eventLoopGroup != null) {
+            eventLoopGroup.shutdownGracefully();
+        }
     }
 
 }
@@ -0,0 +1,257 @@
+package com.leisurexi.rpc.client.connect;
+
+import com.leisurexi.rpc.client.proxy.RpcClientHandler;
+import com.leisurexi.rpc.common.client.ProviderInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个服务端地址的连接池，该地址上发布的所有服务共享，每次选择未完成请求数最少的连接，并根据负载扩容或缩容
+ *
+ * @author: leisurexi
+ * @date: 2020-08-27 10:20 上午
+ */
+@Slf4j
+public class ConnectionPool {
+
+    private static final RpcClientHandler[] EMPTY = new RpcClientHandler[0];
+
+    private final String host;
+
+    private final int port;
+
+    /**
+     * 通过该地址访问的服务提供者及其调用统计，同一地址上的不同服务分别统计和摘除
+     */
+    private final Map<ProviderInfo, ProviderStats> providers = new ConcurrentHashMap<>();
+
+    private final ConnectionPoolConfig config;
+
+    /**
+     * 可用的连接，修改时复制
+     */
+    private volatile RpcClientHandler[] handlers = EMPTY;
+
+    /**
+     * 正在建立的连接数
+     */
+    private final AtomicInteger connecting = new AtomicInteger();
+
+    /**
+     * 最近一次连接池需要当前连接数的时间
+     */
+    private volatile long lastBusyNanos = System.nanoTime();
+
+    private volatile boolean closed;
+
+    public ConnectionPool(String host, int port, ConnectionPoolConfig config) {
+        this.host = host;
+        this.port = port;
+        this.config = config;
+    }
+
+    /**
+     * 获取服务提供者的调用统计及摘除状态
+     *
+     * @param providerInfo 服务提供者
+     * @return 调用统计，服务提供者不在该地址上时返回 null
+     */
+    public ProviderStats getStats(ProviderInfo providerInfo) {
+        return providers.get(providerInfo);
+    }
+
+    /**
+     * 所有连接上未完成的请求数之和
+     */
+    public int getInFlightCount() {
+        int total = 0;
+        for (RpcClientHandler handler : handlers) {
+            total += handler.getInFlightCount();
+        }
+        return total;
+    }
+
+    /**
+     * 建立最少数量的连接
+     */
+    void init() {
+        int count = minConnections();
+        connecting.addAndGet(count);
+        for (int i = 0; i < count; i++) {
+            ConnectionManager.getInstance().openConnection(this);
+        }
+    }
+
+    /**
+     * 选择未完成请求数最少的连接，同时根据负载判断是否需要扩容或缩容
+     *
+     * @return 连接，没有可用连接时返回 null
+     */
+    public RpcClientHandler select() {
+        RpcClientHandler[] handlers = this.handlers;
+        RpcClientHandler selected = null;
+        int least = Integer.MAX_VALUE;
+        int total = 0;
+        for (RpcClientHandler handler : handlers) {
+            int inFlight = handler.getInFlightCount();
+            total += inFlight;
+            if (inFlight < least) {
+                least = inFlight;
+                selected = handler;
+            }
+        }
+        if (selected != null) {
+            adjust(handlers, selected, least, total);
+        }
+        return selected;
+    }
+
+    private void adjust(RpcClientHandler[] handlers, RpcClientHandler selected, int least, int total) {
+        int size = handlers.length;
+        if (least >= config.getExpandThreshold()) {
+            lastBusyNanos = System.nanoTime();
+            // 同一时间只扩容一个连接
+            if (size < config.getMaxConnections() && connecting.compareAndSet(0, 1)) {
+                log.info("Expand connection pool of {}:{}, in-flight: {}", host, port, total);
+                ConnectionManager.getInstance().openConnection(this);
+            }
+            return;
+        }
+        if (size <= minConnections()) {
+            return;
+        }
+        // 少一个连接后剩余连接的负载会超过扩容阈值，说明当前连接数仍然需要
+        if (total >= config.getExpandThreshold() * (size - 1)) {
+            lastBusyNanos = System.nanoTime();
+        } else if (System.nanoTime() - lastBusyNanos > TimeUnit.MILLISECONDS.toNanos(config.getShrinkIdleMillis())) {
+            lastBusyNanos = System.nanoTime();
+            shrink(selected);
+        }
+    }
+
+    /**
+     * 关闭除本次选中的连接外负载最低的连接，连接上的请求全部完成后才真正关闭
+     */
+    private synchronized void shrink(RpcClientHandler selected) {
+        RpcClientHandler[] handlers = this.handlers;
+        if (handlers.length <= minConnections()) {
+            return;
+        }
+        RpcClientHandler idlest = null;
+        for (RpcClientHandler handler : handlers) {
+            if (handler != selected && (idlest == null || handler.getInFlightCount() < idlest.getInFlightCount())) {
+                idlest = handler;
+            }
+        }
+        if (idlest == null) {
+            return;
+        }
+        log.info("Shrink connection pool of {}:{} to {}", host, port, handlers.length - 1);
+        removeHandler(idlest);
+        idlest.retire();
+    }
+
+    /**
+     * 连接建立完成
+     */
+    synchronized void onConnected(RpcClientHandler handler) {
+        connecting.decrementAndGet();
+        if (closed) {
+            handler.close();
+            return;
+        }
+        RpcClientHandler[] handlers = Arrays.copyOf(this.handlers, this.handlers.length + 1);
+        handlers[handlers.length - 1] = handler;
+        this.handlers = handlers;
+    }
+
+    /**
+     * 连接建立失败
+     *
+     * @return 连接池中没有连接并且没有正在建立的连接时返回 true
+     */
+    synchronized boolean onConnectFailed() {
+        return connecting.decrementAndGet() == 0 && handlers.length == 0 && !closed;
+    }
+
+    /**
+     * 移除连接
+     *
+     * @param handler 连接
+     * @return 连接在池中并且移除后连接池为空时返回 true
+     */
+    synchronized boolean removeHandler(RpcClientHandler handler) {
+        RpcClientHandler[] handlers = this.handlers;
+        for (int i = 0; i < handlers.length; i++) {
+            if (handlers[i] == handler) {
+                RpcClientHandler[] copy = new RpcClientHandler[handlers.length - 1];
+                System.arraycopy(handlers, 0, copy, 0, i);
+                System.arraycopy(handlers, i + 1, copy, i, handlers.length - i - 1);
+                this.handlers = copy;
+                return copy.length == 0;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 关闭所有连接
+     */
+    synchronized void close() {
+        closed = true;
+        for (RpcClientHandler handler : handlers) {
+            handler.close();
+        }
+        handlers = EMPTY;
+    }
+
+    private int minConnections() {
+        return Math.max(1, config.getMinConnections());
+    }
+
+    void addProvider(ProviderInfo providerInfo) {
+        providers.putIfAbsent(providerInfo, new ProviderStats());
+    }
+
+    /**
+     * 移除服务提供者
+     *
+     * @param providerInfo 服务提供者
+     * @return 移除后是否已没有服务提供者使用该连接池
+     */
+    boolean removeProvider(ProviderInfo providerInfo) {
+        providers.remove(providerInfo);
+        return providers.isEmpty();
+    }
+
+    Set<ProviderInfo> getProviders() {
+        return providers.keySet();
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getAddress() {
+        return host + ":" + port;
+    }
+
+    public int size() {
+        return handlers.length;
+    }
+
+    public boolean isAvailable() {
+        return handlers.length > 0;
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.leisurexi.rpc.client.connect;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 单个服务提供者的连接池配置
+ *
+ * @author: leisurexi
+ * @date: 2020-08-27 10:05 上午
+ */
+@Getter
+@Builder
+public class ConnectionPoolConfig {
+
+    /**
+     * 默认配置：1 到 4 个连接，按负载扩缩容
+     */
+    public static final ConnectionPoolConfig DEFAULT = ConnectionPoolConfig.builder().build();
+
+    /**
+     * 每个提供者只保持一个连接
+     */
+    public static final ConnectionPoolConfig SINGLE = ConnectionPoolConfig.builder().maxConnections(1).build();
+
+    /**
+     * 最少连接数，建立连接时一次性建好
+     */
+    @Builder.Default
+    private int minConnections = 1;
+
+    /**
+     * 最多连接数
+     */
+    @Builder.Default
+    private int maxConnections = 4;
+
+    /**
+     * 扩容阈值，负载最低的连接上未完成的请求数达到该值时新建一个连接
+     */
+    @Builder.Default
+    private int expandThreshold = 128;
+
+    /**
+     * 缩容空闲时间，单位毫秒。在这段时间内少一个连接也不会触发扩容时，关闭一个连接
+     */
+    @Builder.Default
+    private long shrinkIdleMillis = 60_000;
+
+}
@@ -0,0 +1,84 @@
+package com.leisurexi.rpc.client.connect;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 异常节点摘除配置。定期检查每个服务的提供者，连续出错或响应时间远高于同服务其他提供者中位数的节点会被暂时摘除，
+ * 摘除时间随摘除次数递增，到期后按比例逐步恢复流量
+ *
+ * @author: leisurexi
+ * @date: 2020-08-28 2:10 下午
+ */
+@Getter
+@Builder
+public class OutlierDetectionConfig {
+
+    /**
+     * 默认配置：每秒检查一次
+     */
+    public static final OutlierDetectionConfig DEFAULT = OutlierDetectionConfig.builder().build();
+
+    /**
+     * 关闭异常节点摘除
+     */
+    public static final OutlierDetectionConfig DISABLED = OutlierDetectionConfig.builder().enabled(false).build();
+
+    @Builder.Default
+    private boolean enabled = true;
+
+    /**
+     * 检查间隔，单位毫秒
+     */
+    @Builder.Default
+    private long intervalMillis = 1000;
+
+    /**
+     * 连续出错达到该次数时摘除
+     */
+    @Builder.Default
+    private int consecutiveErrors = 5;
+
+    /**
+     * 响应时间超过同服务提供者中位数的该倍数时摘除
+     */
+    @Builder.Default
+    private double latencyFactor = 3.0;
+
+    /**
+     * 响应时间低于该值时不按响应时间摘除，避免在整体很快时因正常波动摘除，单位毫秒
+     */
+    @Builder.Default
+    private long minOutlierLatencyMillis = 10;
+
+    /**
+     * 同一服务至少有这么多个未摘除且有响应时间采样的提供者时才按响应时间判断
+     */
+    @Builder.Default
+    private int minimumHosts = 3;
+
+    /**
+     * 同一服务最多摘除的提供者比例，百分比
+     */
+    @Builder.Default
+    private int maxEjectionPercent = 50;
+
+    /**
+     * 首次摘除的时间，之后每次摘除递增一倍基础时间，单位毫秒
+     */
+    @Builder.Default
+    private long baseEjectionMillis = 5000;
+
+    /**
+     * 最长摘除时间，单位毫秒。恢复后超过该时间未再被摘除时，摘除次数清零
+     */
+    @Builder.Default
+    private long maxEjectionMillis = 60_000;
+
+    /**
+     * 恢复期，单位毫秒。摘除到期后在这段时间内流量从 0 线性恢复到正常水平
+     */
+    @Builder.Default
+    private long recoveryMillis = 10_000;
+
+}
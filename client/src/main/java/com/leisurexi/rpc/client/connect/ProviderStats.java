@@ -0,0 +1,168 @@
+package com.leisurexi.rpc.client.connect;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个服务提供者（服务端地址上的一个服务）的调用统计及摘除状态，在请求完成时记录响应时间和错误。
+ * 同一地址上的不同服务响应时间差别可能很大，分别统计，只在所属服务的提供者之间比较
+ *
+ * @author: leisurexi
+ * @date: 2020-08-28 2:30 下午
+ */
+public class ProviderStats {
+
+    /**
+     * 响应时间 EWMA 的衰减时间，约等于统计最近这段时间内的平均响应时间
+     */
+    private static final double LATENCY_DECAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongAdder successCount = new LongAdder();
+
+    private final LongAdder errorCount = new LongAdder();
+
+    /**
+     * 连续出错次数，成功一次后清零
+     */
+    private volatile int consecutiveErrors;
+
+    /**
+     * 响应时间的指数加权移动平均，单位纳秒，尚无采样时为 0
+     */
+    private volatile double latencyEwma;
+
+    /**
+     * 最近一次记录响应时间的时间
+     */
+    private volatile long lastLatencyNanos = System.nanoTime();
+
+    private volatile boolean ejected;
+
+    private volatile long ejectedUntilNanos;
+
+    /**
+     * 被摘除的次数，决定下次摘除的时长
+     */
+    private int ejectionCount;
+
+    private long lastEjectionNanos;
+
+    /**
+     * 恢复期的开始和结束时间，结束时间为 0 表示不在恢复期
+     */
+    private volatile long recoveryStartNanos;
+
+    private volatile long recoveryEndNanos;
+
+    /**
+     * 记录一次成功的请求。旧值的权重按距上次采样的时间衰减，与请求频率无关。
+     * 多个 IO 线程并发更新时可能丢失个别采样，不影响结果
+     *
+     * @param latencyNanos 响应时间，单位纳秒
+     */
+    public void recordSuccess(long latencyNanos) {
+        successCount.increment();
+        if (consecutiveErrors != 0) {
+            consecutiveErrors = 0;
+        }
+        long now = System.nanoTime();
+        double ewma = latencyEwma;
+        if (ewma == 0) {
+            ewma = latencyNanos;
+        } else {
+            double weight = Math.exp(-(now - lastLatencyNanos) / LATENCY_DECAY_NANOS);
+            ewma = ewma * weight + latencyNanos * (1 - weight);
+        }
+        lastLatencyNanos = now;
+        latencyEwma = ewma;
+    }
+
+    /**
+     * 记录一次失败的请求，失败往往返回得很快，不计入响应时间，避免出错的节点因此吸引更多流量
+     */
+    public void recordError() {
+        errorCount.increment();
+        consecutiveErrors++;
+    }
+
+    /**
+     * 恢复期内按恢复进度随机放行，其余时间总是放行
+     */
+    public boolean admit() {
+        long end = recoveryEndNanos;
+        if (end == 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now >= end) {
+            recoveryEndNanos = 0;
+            return true;
+        }
+        long start = recoveryStartNanos;
+        return ThreadLocalRandom.current().nextDouble() * (end - start) < now - start;
+    }
+
+    /**
+     * 摘除，摘除时长为基础时长乘以摘除次数，不超过最长摘除时间
+     */
+    void eject(long now, OutlierDetectionConfig config) {
+        if (now - lastEjectionNanos > TimeUnit.MILLISECONDS.toNanos(config.getMaxEjectionMillis() + config.getRecoveryMillis())) {
+            // 上次摘除已过去足够久，重新计算摘除时长
+            ejectionCount = 0;
+        }
+        ejectionCount++;
+        long ejectionMillis = Math.min(config.getBaseEjectionMillis() * ejectionCount, config.getMaxEjectionMillis());
+        lastEjectionNanos = now;
+        ejectedUntilNanos = now + TimeUnit.MILLISECONDS.toNanos(ejectionMillis);
+        recoveryEndNanos = 0;
+        ejected = true;
+    }
+
+    /**
+     * 摘除到期后恢复，进入恢复期。摘除期间没有新的采样，清空之前的响应时间和错误计数重新统计
+     *
+     * @return 是否由摘除状态恢复
+     */
+    boolean restoreIfExpired(long now, OutlierDetectionConfig config) {
+        if (!ejected || now < ejectedUntilNanos) {
+            return false;
+        }
+        latencyEwma = 0;
+        consecutiveErrors = 0;
+        recoveryStartNanos = now;
+        recoveryEndNanos = now + TimeUnit.MILLISECONDS.toNanos(config.getRecoveryMillis());
+        ejected = false;
+        return true;
+    }
+
+    public boolean isEjected() {
+        return ejected;
+    }
+
+    public int getConsecutiveErrors() {
+        return consecutiveErrors;
+    }
+
+    /**
+     * 响应时间的指数加权移动平均，单位纳秒，尚无采样时为 0
+     */
+    public double getLatencyEwma() {
+        return latencyEwma;
+    }
+
+    public long getSuccessCount() {
+        return successCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ProviderStats{success=" + getSuccessCount() + ", error=" + getErrorCount()
+                + ", latencyEwma=" + String.format("%.2fms", latencyEwma / 1e6) + ", ejected=" + ejected + "}";
+    }
+
+}
@@ -1,164 +1,306 @@
 package com.leisurexi.rpc.client.handler;
 
 import com.leisurexi.rpc.client.RpcClient;
+import com.leisurexi.rpc.client.connect.ProviderStats;
+import com.leisurexi.rpc.client.proxy.RpcClientHandler;
+import com.leisurexi.rpc.common.codec.RpcErrorCode;
 import com.leisurexi.rpc.common.codec.RpcRequest;
 import com.leisurexi.rpc.common.codec.RpcResponse;
+import com.leisurexi.rpc.common.exception.RpcException;
+import com.leisurexi.rpc.common.exception.RpcTimeoutException;
+import io.netty.util.Timeout;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.Future;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.AbstractQueuedSynchronizer;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeoutException;
 
 /**
  * RPCFuture for async RPC call
+ * <p>
+ * 基于 {@link CompletableFuture}，可以直接组合多个调用。服务端返回错误或请求发送失败时以 {@link RpcException} 异常结束，
+ * 超时未收到响应时以 {@link RpcTimeoutException} 异常结束；取消或从外部结束时，同时移除连接上对应的未完成请求
  *
  * @author: leisurexi
  * @date: 2020-08-15 5:42 下午
  */
 @Slf4j
-public class RpcFuture implements Future<Object> {
+public class RpcFuture extends CompletableFuture<Object> {
 
-    private Sync sync;
-    private RpcRequest request;
-    private RpcResponse response;
-    private long startTime;
+    /**
+     * 在完成请求的线程上直接执行回调，对于响应即为 IO 线程，回调中不能有阻塞操作
+     */
+    public static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    private final RpcRequest request;
+    /**
+     * 请求所在的连接，取消时从中移除未完成的请求
+     */
+    private final RpcClientHandler handler;
+    /**
+     * 请求开始时间，{@link System#nanoTime()}
+     */
+    private final long startNanos;
     /**
      * 响应时间阈值，超过会打印警告日志
      */
-    private long responseTimeThreshold;
-    private List<AsyncRpcCallback> pendingCallbacks = new ArrayList<>();
-    private ReentrantLock lock = new ReentrantLock();
+    private final long responseTimeThreshold;
+    /**
+     * 请求所调用服务提供者的调用统计，请求完成时记录
+     */
+    private ProviderStats providerStats;
+    /**
+     * 请求的超时任务，请求结束时取消
+     */
+    private volatile Timeout timeout;
+    /**
+     * 响应携带的附加信息，在结束请求之前设置
+     */
+    private Map<String, String> responseAttachments;
 
     public RpcFuture(RpcRequest request) {
-        this(request, 5000);
+        this(request, null);
     }
 
-    public RpcFuture(RpcRequest request, long responseTimeThreshold) {
-        this.request = request;
-        this.sync = new Sync();
-        this.startTime = System.currentTimeMillis();
-        this.responseTimeThreshold = responseTimeThreshold;
+    public RpcFuture(RpcRequest request, RpcClientHandler handler) {
+        this(request, handler, 5000);
     }
 
-    @Override
-    public boolean isDone() {
-        return sync.isDone();
+    public RpcFuture(RpcRequest request, RpcClientHandler handler, long responseTimeThreshold) {
+        this.request = request;
+        this.handler = handler;
+        this.startNanos = System.nanoTime();
+        this.responseTimeThreshold = responseTimeThreshold;
     }
 
+    /**
+     * 等待调用结果
+     *
+     * @return 调用结果
+     * @throws RpcException 调用失败
+     */
     @Override
     public Object get() {
-        sync.acquire(1);
-        if (this.response != null) {
-            return this.response.getResult();
+        try {
+            return super.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RpcException("Interrupted while waiting for request " + request.getRequestId(), e);
+        } catch (ExecutionException e) {
+            throw toRpcException(e.getCause());
         }
-        return null;
     }
 
+    /**
+     * 等待调用结果，超时只结束等待，不会取消请求
+     *
+     * @return 调用结果
+     * @throws RpcException 调用失败或等待超时
+     */
     @Override
     public Object get(long timeout, TimeUnit unit) throws InterruptedException {
-        boolean success = sync.tryAcquireNanos(1, unit.toNanos(timeout));
-        if (success) {
-            if (response != null) {
-                return response.getResult();
-            } else {
-                return null;
-            }
-        } else {
-            throw new RuntimeException("Timeout exception. Request id: " + request.getRequestId()
-                    + ". Request class name: " + request.getClassName()
-                    + ". Request method: " + request.getMethodName());
+        try {
+            return super.get(timeout, unit);
+        } catch (ExecutionException e) {
+            throw toRpcException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RpcTimeoutException(timeoutMessage());
         }
     }
 
+    /**
+     * 取消请求，并移除连接上对应的未完成请求，之后到达的响应会被丢弃
+     */
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
-        throw new UnsupportedOperationException();
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            releasePending();
+        }
+        return cancelled;
     }
 
+    /**
+     * 从外部结束请求，并移除连接上对应的未完成请求
+     */
     @Override
-    public boolean isCancelled() {
-        throw new UnsupportedOperationException();
+    public boolean complete(Object value) {
+        boolean completed = super.complete(value);
+        if (completed) {
+            releasePending();
+        }
+        return completed;
     }
 
+    /**
+     * 从外部以异常结束请求，并移除连接上对应的未完成请求
+     */
+    @Override
+    public boolean completeExceptionally(Throwable ex) {
+        boolean completed = super.completeExceptionally(ex);
+        if (completed) {
+            releasePending();
+        }
+        return completed;
+    }
+
+    private void releasePending() {
+        cancelTimeout();
+        if (handler != null) {
+            handler.removePendingRpc(request.getRequestId(), this);
+        }
+    }
+
+    private void cancelTimeout() {
+        Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * 收到响应，由 IO 线程调用
+     *
+     * @param response 响应
+     */
     public void done(RpcResponse response) {
-        this.response = response;
-        sync.release(1);
-        invokeCallbacks();
-        long responseTime = System.currentTimeMillis() - startTime;
+        cancelTimeout();
+        long elapsedNanos = getElapsedNanos();
+        ProviderStats stats = this.providerStats;
+        if (stats != null) {
+            // 业务异常和消息体反序列化失败说明服务端可以正常处理请求，不算作节点故障
+            if (response.isError() && response.getErrorCode() != RpcErrorCode.SERVICE_ERROR
+                    && response.getErrorCode() != RpcErrorCode.SERIALIZATION_ERROR) {
+                stats.recordError();
+            } else {
+                stats.recordSuccess(elapsedNanos);
+            }
+        }
+        this.responseAttachments = response.getAttachments();
+        if (response.isError()) {
+            super.completeExceptionally(new RpcException("Request " + request.getRequestId()
+                    + " failed with error code " + response.getErrorCode() + ": " + response.getError()));
+        } else {
+            super.complete(response.getResult());
+        }
+        long responseTime = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
         if (responseTime > responseTimeThreshold) {
             log.warn("Service response time is too slow. Request id = {}. Response time = {}ms", request.getRequestId(), responseTime);
         }
     }
 
     /**
-     * 调用回调
+     * 请求未能得到响应时以异常结束，例如请求发送失败
      *
-     * @see #runCallback(AsyncRpcCallback)
+     * @param cause 异常信息
      */
-    private void invokeCallbacks() {
-        lock.lock();
-        try {
-            for (AsyncRpcCallback pendingCallback : pendingCallbacks) {
-                runCallback(pendingCallback);
-            }
-        } finally {
-            lock.unlock();
+    public void fail(Throwable cause) {
+        cancelTimeout();
+        ProviderStats stats = this.providerStats;
+        if (stats != null) {
+            stats.recordError();
         }
+        super.completeExceptionally(new RpcException("Request " + request.getRequestId() + " failed", cause));
     }
 
     /**
-     * 异步 RPC 调用回调
+     * 超时未收到响应时以 {@link RpcTimeoutException} 结束，由超时定时器调用
+     */
+    public void expire() {
+        ProviderStats stats = this.providerStats;
+        if (stats != null) {
+            stats.recordError();
+        }
+        super.completeExceptionally(new RpcTimeoutException(timeoutMessage()));
+    }
+
+    /**
+     * 添加回调，在客户端的回调线程池中执行
      *
      * @param callback 回调函数
+     * @return 当前对象
      */
-    private void runCallback(final AsyncRpcCallback callback) {
-        final RpcResponse resp = this.response;
-        RpcClient.submit(() -> {
-            if (!resp.isError()) {
-                callback.success(resp.getResult());
+    public RpcFuture addCallback(AsyncRpcCallback callback) {
+        return addCallback(callback, RpcClient::submit);
+    }
+
+    /**
+     * 添加回调，在指定的线程池中执行，请求已完成时立即提交。
+     * 传入 {@link #DIRECT_EXECUTOR} 时直接在完成请求的线程上执行
+     *
+     * @param callback 回调函数
+     * @param executor 执行回调的线程池
+     * @return 当前对象
+     */
+    public RpcFuture addCallback(AsyncRpcCallback callback, Executor executor) {
+        whenCompleteAsync((result, cause) -> {
+            if (cause == null) {
+                callback.success(result);
             } else {
-                callback.fail(new RuntimeException("Response error", new Throwable(resp.getError())));
+                callback.fail(toRpcException(cause));
             }
-        });
+        }, executor);
+        return this;
     }
 
-    static class Sync extends AbstractQueuedSynchronizer {
+    /**
+     * 设置请求所调用服务提供者的调用统计，需要在请求发出之前设置
+     */
+    public void setProviderStats(ProviderStats providerStats) {
+        this.providerStats = providerStats;
+    }
 
-        /**
-         * 完成状态
-         */
-        private final int done = 1;
+    /**
+     * 设置请求的超时任务，请求结束时取消，设置时请求已结束则立即取消
+     */
+    public void setTimeout(Timeout timeout) {
+        this.timeout = timeout;
+        if (isDone()) {
+            timeout.cancel();
+        }
+    }
 
-        /**
-         * 等待状态
-         */
-        private final int pending = 0;
+    /**
+     * 从请求开始到现在经过的纳秒数
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
 
-        @Override
-        protected boolean tryAcquire(int arg) {
-            return getState() == done;
-        }
+    /**
+     * 获取响应携带的附加信息，需要在请求完成后调用
+     *
+     * @return 附加信息，没有附加信息时为空
+     */
+    public Map<String, String> getResponseAttachments() {
+        Map<String, String> attachments = this.responseAttachments;
+        return attachments == null ? Collections.emptyMap() : attachments;
+    }
 
-        @Override
-        protected boolean tryRelease(int arg) {
-            if (getState() == pending) {
-                if (compareAndSetState(pending, done)) {
-                    return true;
-                } else {
-                    return false;
-                }
-            } else {
-                return true;
-            }
-        }
+    public RpcRequest getRequest() {
+        return request;
+    }
 
-        public boolean isDone() {
-            return getState() == done;
-        }
+    private String timeoutMessage() {
+        String method = request.getClassName() != null ? "Request class name: " + request.getClassName()
+                + ". Request method: " + request.getMethodName() : "Request method id: " + request.getMethodId();
+        return "Timeout exception. Request id: " + request.getRequestId() + ". " + method
+                + ". Elapsed: " + TimeUnit.NANOSECONDS.toMillis(getElapsedNanos()) + "ms";
+    }
 
+    private RuntimeException toRpcException(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new RpcException("Request " + request.getRequestId() + " failed", cause);
     }
 
 }
@@ -2,14 +2,29 @@ package com.leisurexi.rpc.client.proxy;
 
 import com.leisurexi.rpc.client.connect.ConnectionManager;
 import com.leisurexi.rpc.client.handler.RpcFuture;
+import com.leisurexi.rpc.client.route.LoadBalanceType;
+import com.leisurexi.rpc.client.route.ProviderNode;
+import com.leisurexi.rpc.client.route.RpcLoadBalance;
+import com.leisurexi.rpc.common.codec.HeartBeat;
 import com.leisurexi.rpc.common.codec.RpcRequest;
+import com.leisurexi.rpc.common.compress.CompressionType;
+import com.leisurexi.rpc.common.context.RpcContext;
+import com.leisurexi.rpc.common.exception.RpcTimeoutException;
+import com.leisurexi.rpc.common.filter.RpcFilterChain;
+import com.leisurexi.rpc.common.filter.RpcInvocation;
+import com.leisurexi.rpc.common.filter.RpcInvoker;
 import com.leisurexi.rpc.common.util.ServiceKeyUtils;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.util.Arrays;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author: leisurexi
@@ -18,12 +33,53 @@ import java.util.UUID;
 @Slf4j
 public class ObjectProxy<T> implements InvocationHandler, RpcService {
 
+    /**
+     * 请求id生成器，0 保留给心跳消息
+     */
+    private static final AtomicLong REQUEST_ID_GENERATOR = new AtomicLong(HeartBeat.HEART_BEAT_ID);
+
     private Class<T> clazz;
     private String version;
+    /**
+     * 该服务请求的压缩方式，服务端按同样的方式压缩响应
+     */
+    private CompressionType compression;
+    /**
+     * 服务接口对应的业务 key
+     */
+    private final String serviceKey;
+    /**
+     * 该服务使用的负载均衡策略
+     */
+    private final RpcLoadBalance loadBalance;
+    /**
+     * 缓存方法对应的方法 key，避免每次调用都拼接字符串
+     */
+    private final Map<Method, String> methodKeyCache = new ConcurrentHashMap<>();
+    /**
+     * 创建时按客户端已添加的过滤器构建的过滤器链，没有过滤器时为 null，直接发送请求
+     */
+    private final RpcInvoker filterChain;
 
     public ObjectProxy(Class<T> clazz, String version) {
+        this(clazz, version, CompressionType.NONE);
+    }
+
+    public ObjectProxy(Class<T> clazz, String version, CompressionType compression) {
+        this(clazz, version, compression, LoadBalanceType.ROUND_ROBIN);
+    }
+
+    public ObjectProxy(Class<T> clazz, String version, CompressionType compression, LoadBalanceType loadBalanceType) {
+        this(clazz, version, compression, loadBalanceType.createLoadBalance());
+    }
+
+    public ObjectProxy(Class<T> clazz, String version, CompressionType compression, RpcLoadBalance loadBalance) {
         this.clazz = clazz;
         this.version = version;
+        this.compression = compression;
+        this.serviceKey = ServiceKeyUtils.buildServiceKey(clazz.getName(), version);
+        this.loadBalance = loadBalance;
+        this.filterChain = RpcFilterChain.build(ConnectionManager.getInstance().getFilters(), this::send);
     }
 
     @Override
@@ -42,36 +98,135 @@ public class ObjectProxy<T> implements InvocationHandler, RpcService {
             }
         }
 
+        String interfaceName = method.getDeclaringClass().getName();
+        String serviceKey = method.getDeclaringClass() == clazz ? this.serviceKey
+                : ServiceKeyUtils.buildServiceKey(interfaceName, version);
         RpcRequest request = new RpcRequest();
-        request.setRequestId(UUID.randomUUID().toString());
-        request.setClassName(method.getDeclaringClass().getName());
-        request.setMethodName(method.getName());
-        request.setParameterTypes(method.getParameterTypes());
+        request.setRequestId(REQUEST_ID_GENERATOR.incrementAndGet());
+        request.setCompression(compression);
         request.setParameters(args);
-        request.setVersion(version);
-        if (log.isDebugEnabled()) {
-            log.debug("class name: [{}], method name: [{}], parameter types: {}, parameters: {}, version: [{}]",
-                    request.getClassName(), request.getMethodName(), Arrays.toString(request.getParameterTypes()),
-                    Arrays.toString(request.getParameters()), version);
+        applyContext(request);
+        String methodKey = getMethodKey(serviceKey, method);
+        // 超时后请求由超时定时器结束，这里的等待不会超过超时时间
+        if (filterChain == null) {
+            return send(serviceKey, methodKey, interfaceName, method.getName(), method.getParameterTypes(), request).get();
+        }
+        CompletableFuture<Object> future = filterChain.invoke(new RpcInvocation(serviceKey, methodKey, interfaceName,
+                method.getName(), method.getParameterTypes(), request));
+        if (future instanceof RpcFuture) {
+            return ((RpcFuture) future).get();
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() != null ? e.getCause() : e;
         }
-        String serviceKey = ServiceKeyUtils.buildServiceKey(method.getDeclaringClass().getName(), version);
-        RpcClientHandler handler = ConnectionManager.getInstance().chooseHandler(serviceKey);
-        RpcFuture rpcFuture = handler.sendRequest(request);
-        return rpcFuture.get();
     }
 
     @Override
     public RpcFuture call(String funcName, Object... args) throws Exception {
-        String serviceKey = ServiceKeyUtils.buildServiceKey(clazz.getName(), version);
-        RpcClientHandler handler = ConnectionManager.getInstance().chooseHandler(serviceKey);
+        return callWithRoutingKey(null, funcName, args);
+    }
+
+    @Override
+    public RpcFuture callWithRoutingKey(Object routingKey, String funcName, Object... args) throws Exception {
         RpcRequest request = createRequest(clazz.getName(), funcName, args);
-        RpcFuture rpcFuture = handler.sendRequest(request);
+        request.setRoutingKey(routingKey);
+        applyContext(request);
+        if (filterChain == null) {
+            return send(serviceKey, null, clazz.getName(), funcName, request.getParameterTypes(), request);
+        }
+        CompletableFuture<Object> future = filterChain.invoke(new RpcInvocation(serviceKey, null, clazz.getName(),
+                funcName, request.getParameterTypes(), request));
+        if (future instanceof RpcFuture) {
+            return (RpcFuture) future;
+        }
+        // 过滤器返回了其他的异步结果，转换成 RpcFuture 返回
+        RpcFuture rpcFuture = new RpcFuture(request);
+        future.whenComplete((result, cause) -> {
+            if (cause == null) {
+                rpcFuture.complete(result);
+            } else {
+                rpcFuture.completeExceptionally(cause instanceof CompletionException && cause.getCause() != null
+                        ? cause.getCause() : cause);
+            }
+        });
         return rpcFuture;
     }
 
+    /**
+     * 过滤器链的末端，选择连接并发送请求
+     */
+    private RpcFuture send(RpcInvocation invocation) throws Exception {
+        return send(invocation.getServiceKey(), invocation.getMethodKey(), invocation.getInterfaceName(),
+                invocation.getMethodName(), invocation.getParameterTypes(), invocation.getRequest());
+    }
+
+    /**
+     * 选择连接并发送请求
+     *
+     * @param methodKey 方法 key，为 null 时按方法名调用，不使用方法id
+     */
+    private RpcFuture send(String serviceKey, String methodKey, String interfaceName, String methodName,
+                           Class<?>[] parameterTypes, RpcRequest request) throws Exception {
+        ConnectionManager connectionManager = ConnectionManager.getInstance();
+        ProviderNode node = connectionManager.chooseNode(serviceKey, loadBalance, request);
+        RpcClientHandler handler = connectionManager.chooseHandler(node);
+        int methodId = methodKey == null ? 0 : handler.getMethodId(methodKey);
+        if (methodId > 0) {
+            // 握手完成后只需携带方法id和参数
+            request.setMethodId(methodId);
+        } else {
+            request.setClassName(interfaceName);
+            request.setMethodName(methodName);
+            request.setParameterTypes(parameterTypes);
+            request.setVersion(version);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("class name: [{}], method name: [{}], method id: [{}], parameter types: {}, parameters: {}, version: [{}]",
+                    interfaceName, methodName, methodId, Arrays.toString(parameterTypes),
+                    Arrays.toString(request.getParameters()), version);
+        }
+        return handler.sendRequest(request, request.getTimeout(), node.getStats());
+    }
+
+    /**
+     * 把当前上下文写入请求：超时时间取客户端的请求超时时间与上下文中剩余时间预算的较小值，
+     * 附加信息直接引用上下文中的只读快照。服务端处理请求时发起的嵌套调用由此继承上游的截止时间和附加信息
+     *
+     * @param request 请求
+     * @throws RpcTimeoutException 截止时间已过，请求不会发出
+     */
+    private void applyContext(RpcRequest request) {
+        long timeoutMillis = Math.max(ConnectionManager.getInstance().getRequestTimeoutMillis(), 0);
+        RpcContext context = RpcContext.getContext();
+        if (context.hasDeadline()) {
+            long remainingNanos = context.getRemainingNanos();
+            if (remainingNanos <= 0) {
+                throw new RpcTimeoutException("Deadline exceeded before sending request " + request.getRequestId()
+                        + " to " + serviceKey + ", exceeded by " + TimeUnit.NANOSECONDS.toMillis(-remainingNanos) + "ms");
+            }
+            // 向上取整，不足 1ms 按 1ms 计，避免得到表示不超时的 0
+            long remainingMillis = (remainingNanos + 999_999) / 1_000_000;
+            timeoutMillis = timeoutMillis > 0 ? Math.min(timeoutMillis, remainingMillis) : remainingMillis;
+        }
+        request.setTimeout(timeoutMillis);
+        request.setAttachments(context.getAttachments());
+    }
+
+    private String getMethodKey(String serviceKey, Method method) {
+        String methodKey = methodKeyCache.get(method);
+        if (methodKey == null) {
+            methodKey = ServiceKeyUtils.buildMethodKey(serviceKey, method.getName(), method.getParameterTypes());
+            methodKeyCache.put(method, methodKey);
+        }
+        return methodKey;
+    }
+
     private RpcRequest createRequest(String className, String methodName, Object[] args) {
         RpcRequest request = new RpcRequest();
-        request.setRequestId(UUID.randomUUID().toString());
+        request.setRequestId(REQUEST_ID_GENERATOR.incrementAndGet());
+        request.setCompression(compression);
         request.setClassName(className);
         request.setMethodName(methodName);
         request.setParameters(args);
@@ -80,6 +235,7 @@ public class ObjectProxy<T> implements InvocationHandler, RpcService {
         for (int i = 0; i < parameterTypes.length; i++) {
             parameterTypes[i] = args[i].getClass();
         }
+        request.setParameterTypes(parameterTypes);
         if (log.isDebugEnabled()) {
             log.debug("class name: [{}], method name: [{}], parameter types: {}, parameters: {}, version: [{}]",
                     request.getClassName(), request.getMethodName(), Arrays.toString(request.getParameterTypes()),
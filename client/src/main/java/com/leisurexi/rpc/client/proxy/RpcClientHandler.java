@@ -1,19 +1,24 @@
 package com.leisurexi.rpc.client.proxy;
 
 import com.leisurexi.rpc.client.connect.ConnectionManager;
+import com.leisurexi.rpc.client.connect.ConnectionPool;
+import com.leisurexi.rpc.client.connect.ProviderStats;
 import com.leisurexi.rpc.client.handler.RpcFuture;
 import com.leisurexi.rpc.common.codec.HeartBeat;
+import com.leisurexi.rpc.common.codec.RpcMethodTable;
 import com.leisurexi.rpc.common.codec.RpcRequest;
 import com.leisurexi.rpc.common.codec.RpcResponse;
-import com.leisurexi.rpc.common.client.ProviderInfo;
+import com.leisurexi.rpc.common.exception.RpcException;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
 import io.netty.handler.timeout.IdleStateEvent;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.SocketAddress;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author: leisurexi
@@ -22,10 +27,22 @@ import java.util.concurrent.ConcurrentMap;
 @Slf4j
 public class RpcClientHandler extends SimpleChannelInboundHandler<RpcResponse> {
 
-    private ConcurrentMap<String, RpcFuture> pendingRpc = new ConcurrentHashMap<>();
+    /**
+     * 连接从连接池移除后检查是否可以关闭的间隔
+     */
+    private static final long RETIRE_CHECK_MILLIS = 1000;
+
+    private ConcurrentMap<Long, RpcFuture> pendingRpc = new ConcurrentHashMap<>();
     private volatile Channel channel;
     private SocketAddress remotePeer;
-    private ProviderInfo providerInfo;
+    /**
+     * 所属的连接池
+     */
+    private volatile ConnectionPool connectionPool;
+    /**
+     * 服务端下发的方法id表，握手完成前为 null
+     */
+    private volatile RpcMethodTable methodTable;
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
@@ -39,37 +56,141 @@ public class RpcClientHandler extends SimpleChannelInboundHandler<RpcResponse> {
         this.channel = ctx.channel();
     }
 
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof RpcMethodTable) {
+            this.methodTable = (RpcMethodTable) msg;
+            log.debug("Receive method table from {}, size: {}", remotePeer, methodTable.getMethodIds().size());
+            return;
+        }
+        super.channelRead(ctx, msg);
+    }
+
     @Override
     protected void channelRead0(ChannelHandlerContext channelHandlerContext, RpcResponse response) throws Exception {
-        String requestId = response.getRequestId();
+        long requestId = response.getRequestId();
         log.debug("Receive response: {}", requestId);
-        RpcFuture rpcFuture = pendingRpc.get(requestId);
+        RpcFuture rpcFuture = pendingRpc.remove(requestId);
         if (rpcFuture != null) {
-            pendingRpc.remove(requestId);
             rpcFuture.done(response);
         } else {
-            log.warn("Can not get pending response for request id: {}", requestId);
+            // 请求已被取消时响应会晚于移除到达，属于正常情况
+            log.debug("Can not get pending response for request id: {}", requestId);
         }
     }
 
+    /**
+     * 未完成的请求数
+     */
+    public int getInFlightCount() {
+        return pendingRpc.size();
+    }
+
+    /**
+     * 连接池缩容时调用，此后不会再有新请求选中该连接，已发送的请求全部完成后关闭连接。
+     * 每隔一段时间检查一次，也给移除之前已经选中该连接的请求留出发送的时间
+     */
+    public void retire() {
+        channel.eventLoop().schedule(this::closeIfIdle, RETIRE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void closeIfIdle() {
+        if (!channel.isActive()) {
+            return;
+        }
+        if (pendingRpc.isEmpty()) {
+            close();
+        } else {
+            channel.eventLoop().schedule(this::closeIfIdle, RETIRE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 获取方法id
+     *
+     * @param methodKey 方法 key
+     * @return 方法id，握手未完成或服务端未发布该方法时返回 0
+     */
+    public int getMethodId(String methodKey) {
+        RpcMethodTable methodTable = this.methodTable;
+        return methodTable == null ? 0 : methodTable.getMethodId(methodKey);
+    }
+
     public void close() {
         channel.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
     }
 
+    /**
+     * 异步发送请求，使用客户端的请求超时时间
+     *
+     * @param request 请求
+     * @return 异步结果
+     * @see ConnectionManager#setRequestTimeoutMillis(long)
+     */
     public RpcFuture sendRequest(RpcRequest request) {
-        RpcFuture rpcFuture = new RpcFuture(request);
-        pendingRpc.put(request.getRequestId(), rpcFuture);
-        try {
-            ChannelFuture channelFuture = channel.writeAndFlush(request).sync();
-            if (!channelFuture.isSuccess()) {
-                log.error("Send request " + request.getRequestId() + "error", channelFuture.cause());
-            }
-        } catch (InterruptedException e) {
-            // ignore
+        return sendRequest(request, ConnectionManager.getInstance().getRequestTimeoutMillis());
+    }
+
+    /**
+     * 异步发送请求，不等待写入完成，写入失败时以异常结束对应的 {@link RpcFuture}，
+     * 超时未收到响应时从未完成的请求中移除，并以 {@link com.leisurexi.rpc.common.exception.RpcTimeoutException} 结束
+     *
+     * @param request       请求
+     * @param timeoutMillis 超时时间，小于等于 0 时不超时
+     * @return 异步结果
+     */
+    public RpcFuture sendRequest(RpcRequest request, long timeoutMillis) {
+        return sendRequest(request, timeoutMillis, null);
+    }
+
+    /**
+     * 异步发送请求，不等待写入完成，写入失败时以异常结束对应的 {@link RpcFuture}，
+     * 超时未收到响应时从未完成的请求中移除，并以 {@link com.leisurexi.rpc.common.exception.RpcTimeoutException} 结束
+     *
+     * @param request       请求
+     * @param timeoutMillis 超时时间，小于等于 0 时不超时
+     * @param providerStats 所调用服务提供者的调用统计，请求完成时记录，可以为 null
+     * @return 异步结果
+     */
+    public RpcFuture sendRequest(RpcRequest request, long timeoutMillis, ProviderStats providerStats) {
+        RpcFuture rpcFuture = new RpcFuture(request, this);
+        rpcFuture.setProviderStats(providerStats);
+        long requestId = request.getRequestId();
+        // 先放入未完成的请求再启动超时任务，否则超时任务先执行时移除不到请求，请求会一直留在其中
+        pendingRpc.put(requestId, rpcFuture);
+        if (timeoutMillis > 0) {
+            rpcFuture.setTimeout(ConnectionManager.getInstance().getTimeoutTimer()
+                    .newTimeout(timeout -> expire(rpcFuture), timeoutMillis, TimeUnit.MILLISECONDS));
         }
+        channel.writeAndFlush(request).addListener(future -> {
+            if (!future.isSuccess()) {
+                log.error("Send request " + requestId + " error", future.cause());
+                RpcFuture pending = pendingRpc.remove(requestId);
+                if (pending != null) {
+                    pending.fail(future.cause());
+                }
+            }
+        });
         return rpcFuture;
     }
 
+    private void expire(RpcFuture rpcFuture) {
+        // 与响应竞争，只有从未完成的请求中移除成功的一方结束请求
+        if (pendingRpc.remove(rpcFuture.getRequest().getRequestId(), rpcFuture)) {
+            rpcFuture.expire();
+        }
+    }
+
+    /**
+     * 移除未完成的请求，用于请求被取消或从外部以异常结束
+     *
+     * @param requestId 请求id
+     * @param rpcFuture 请求对应的异步结果
+     */
+    public void removePendingRpc(long requestId, RpcFuture rpcFuture) {
+        pendingRpc.remove(requestId, rpcFuture);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         log.error("Client caught exception: {}", cause.getMessage());
@@ -78,8 +199,8 @@ public class RpcClientHandler extends SimpleChannelInboundHandler<RpcResponse> {
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
         if (evt instanceof IdleStateEvent) {
-            // 发送心跳消息
-            sendRequest(HeartBeat.HEART_BEAT_PING);
+            // 发送心跳消息，心跳没有响应，不放入 pendingRpc
+            ctx.writeAndFlush(HeartBeat.HEART_BEAT_PING);
             if (log.isDebugEnabled()) {
                 log.debug("Client send beat-ping to" + remotePeer);
             }
@@ -91,10 +212,27 @@ public class RpcClientHandler extends SimpleChannelInboundHandler<RpcResponse> {
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         super.channelInactive(ctx);
-        ConnectionManager.getInstance().removeHandler(providerInfo);
+        ConnectionManager.getInstance().removeHandler(this);
+        failPendingRpc(new RpcException("Connection to " + remotePeer + " closed"));
+    }
+
+    /**
+     * 连接断开后不会再收到响应，立即结束所有未完成的请求
+     */
+    private void failPendingRpc(RpcException cause) {
+        for (Map.Entry<Long, RpcFuture> entry : pendingRpc.entrySet()) {
+            // 与响应和超时竞争，只结束移除成功的请求
+            if (pendingRpc.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().fail(cause);
+            }
+        }
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
     }
 
-    public void setProviderInfo(ProviderInfo providerInfo) {
-        this.providerInfo = providerInfo;
+    public void setConnectionPool(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
     }
 }
@@ -20,4 +20,15 @@ public interface RpcService {
      */
     RpcFuture call(String funcName, Object... args) throws Exception;
 
+    /**
+     * 指定路由 key 的异步调用，使用一致性哈希负载均衡时相同路由 key 的请求发往同一个服务提供者
+     *
+     * @param routingKey 路由 key
+     * @param funcName   方法名称
+     * @param args       方法参数
+     * @return 异步结果
+     * @throws Exception
+     */
+    RpcFuture callWithRoutingKey(Object routingKey, String funcName, Object... args) throws Exception;
+
 }
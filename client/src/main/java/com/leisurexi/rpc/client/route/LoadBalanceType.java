@@ -0,0 +1,72 @@
+package com.leisurexi.rpc.client.route;
+
+import com.leisurexi.rpc.client.route.impl.RpcLoadBalanceConsistentHash;
+import com.leisurexi.rpc.client.route.impl.RpcLoadBalanceLeastActive;
+import com.leisurexi.rpc.client.route.impl.RpcLoadBalanceP2cEwma;
+import com.leisurexi.rpc.client.route.impl.RpcLoadBalanceRoundRobin;
+import com.leisurexi.rpc.client.route.impl.RpcLoadBalanceWeightedRoundRobin;
+
+/**
+ * 负载均衡策略
+ *
+ * @author: leisurexi
+ * @date: 2020-08-27 4:30 下午
+ */
+public enum LoadBalanceType {
+
+    /**
+     * 轮询
+     */
+    ROUND_ROBIN {
+        @Override
+        public RpcLoadBalance createLoadBalance() {
+            return new RpcLoadBalanceRoundRobin();
+        }
+    },
+
+    /**
+     * 按服务提供者发布的权重加权轮询
+     */
+    WEIGHTED_ROUND_ROBIN {
+        @Override
+        public RpcLoadBalance createLoadBalance() {
+            return new RpcLoadBalanceWeightedRoundRobin();
+        }
+    },
+
+    /**
+     * 未完成请求数相对权重最少
+     */
+    LEAST_ACTIVE {
+        @Override
+        public RpcLoadBalance createLoadBalance() {
+            return new RpcLoadBalanceLeastActive();
+        }
+    },
+
+    /**
+     * 随机两个节点中响应时间 EWMA 与未完成请求数综合负载较低的一个
+     */
+    P2C_EWMA {
+        @Override
+        public RpcLoadBalance createLoadBalance() {
+            return new RpcLoadBalanceP2cEwma();
+        }
+    },
+
+    /**
+     * 按路由 key 一致性哈希，默认以第一个参数作为路由 key
+     */
+    CONSISTENT_HASH {
+        @Override
+        public RpcLoadBalance createLoadBalance() {
+            return new RpcLoadBalanceConsistentHash();
+        }
+    };
+
+    /**
+     * 创建负载均衡策略实例，实例中保存的轮询计数等状态只属于该实例
+     */
+    public abstract RpcLoadBalance createLoadBalance();
+
+}
@@ -0,0 +1,50 @@
+package com.leisurexi.rpc.client.route;
+
+import com.leisurexi.rpc.client.connect.ConnectionPool;
+import com.leisurexi.rpc.client.connect.ProviderStats;
+import com.leisurexi.rpc.common.client.ProviderInfo;
+import lombok.Getter;
+
+/**
+ * 路由表中的服务提供者节点，持有提供者信息、其所在地址的连接池以及该提供者的调用统计
+ *
+ * @author: leisurexi
+ * @date: 2020-08-26 10:05 上午
+ */
+@Getter
+public class ProviderNode {
+
+    private final ProviderInfo providerInfo;
+
+    private final ConnectionPool connectionPool;
+
+    /**
+     * 该提供者的调用统计及摘除状态，没有连接池时为 null
+     */
+    private final ProviderStats stats;
+
+    public ProviderNode(ProviderInfo providerInfo, ConnectionPool connectionPool) {
+        this.providerInfo = providerInfo;
+        this.connectionPool = connectionPool;
+        this.stats = connectionPool == null ? null : connectionPool.getStats(providerInfo);
+    }
+
+    /**
+     * 是否放行本次请求，刚从摘除中恢复的节点按恢复进度逐步放量
+     */
+    public boolean admit() {
+        return stats == null || stats.admit();
+    }
+
+    /**
+     * 是否已被摘除
+     */
+    public boolean isEjected() {
+        return stats != null && stats.isEjected();
+    }
+
+    public int getWeight() {
+        return providerInfo.getWeight();
+    }
+
+}
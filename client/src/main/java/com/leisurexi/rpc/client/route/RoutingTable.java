@@ -0,0 +1,84 @@
+package com.leisurexi.rpc.client.route;
+
+import com.leisurexi.rpc.client.connect.ConnectionPool;
+import com.leisurexi.rpc.common.client.ProviderInfo;
+import com.leisurexi.rpc.common.util.ServiceKeyUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 不可变的路由表，业务 key 到服务提供者节点数组的映射。
+ * 只在服务提供者上下线时整体重建，选择节点时无需加锁也不会分配对象
+ *
+ * @author: leisurexi
+ * @date: 2020-08-26 10:12 上午
+ */
+public final class RoutingTable {
+
+    public static final RoutingTable EMPTY = new RoutingTable(Collections.emptyMap());
+
+    private final Map<String, ProviderNode[]> routes;
+
+    private RoutingTable(Map<String, ProviderNode[]> routes) {
+        this.routes = routes;
+    }
+
+    /**
+     * 根据已连接的服务提供者构建路由表，已被摘除的节点不参与路由，除非该服务的节点全部被摘除
+     *
+     * @param connectedServerNodes 已经跟服务端连接的节点及其连接池
+     * @return 路由表
+     */
+    public static RoutingTable build(Map<ProviderInfo, ConnectionPool> connectedServerNodes) {
+        if (connectedServerNodes == null || connectedServerNodes.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, List<ProviderNode>> serviceMap = groupByService(connectedServerNodes);
+        Map<String, ProviderNode[]> routes = new HashMap<>(serviceMap.size() * 2);
+        for (Map.Entry<String, List<ProviderNode>> entry : serviceMap.entrySet()) {
+            List<ProviderNode> nodes = new ArrayList<>(entry.getValue());
+            nodes.removeIf(ProviderNode::isEjected);
+            if (nodes.isEmpty()) {
+                nodes = entry.getValue();
+            }
+            routes.put(entry.getKey(), nodes.toArray(new ProviderNode[0]));
+        }
+        return new RoutingTable(routes);
+    }
+
+    /**
+     * 按业务 key 对服务提供者分组
+     *
+     * @param connectedServerNodes 已经跟服务端连接的节点及其连接池
+     * @return 业务 key 到提供者节点的映射
+     */
+    public static Map<String, List<ProviderNode>> groupByService(Map<ProviderInfo, ConnectionPool> connectedServerNodes) {
+        Map<String, List<ProviderNode>> serviceMap = new HashMap<>();
+        for (Map.Entry<ProviderInfo, ConnectionPool> entry : connectedServerNodes.entrySet()) {
+            ProviderInfo providerInfo = entry.getKey();
+            String serviceKey = ServiceKeyUtils.buildServiceKey(providerInfo.getServiceName(), providerInfo.getVersion());
+            serviceMap.computeIfAbsent(serviceKey, key -> new ArrayList<>())
+                    .add(new ProviderNode(providerInfo, entry.getValue()));
+        }
+        return serviceMap;
+    }
+
+    /**
+     * 获取服务的所有提供者节点，返回的数组不可修改
+     *
+     * @param serviceKey 业务 key
+     * @return 提供者节点，没有可用节点时返回 null
+     */
+    public ProviderNode[] getNodes(String serviceKey) {
+        return routes.get(serviceKey);
+    }
+
+    public boolean isEmpty() {
+        return routes.isEmpty();
+    }
+
+}
@@ -1,14 +1,6 @@
 package com.leisurexi.rpc.client.route;
 
-import com.leisurexi.rpc.client.proxy.RpcClientHandler;
-import com.leisurexi.rpc.common.client.ProviderInfo;
-import com.leisurexi.rpc.common.util.ServiceKeyUtils;
-import org.springframework.util.CollectionUtils;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import com.leisurexi.rpc.common.codec.RpcRequest;
 
 /**
  * RPC 负载均衡
@@ -19,35 +11,58 @@ import java.util.Map;
 public abstract class RpcLoadBalance {
 
     /**
-     * 获取服务 Map
+     * 根据负载均衡策略获取服务端节点
+     *
+     * @param serviceKey   服务关键字
+     * @param routingTable 当前的路由表
+     * @return 服务端节点
+     * @throws Exception 没有可用的服务提供者
+     */
+    public ProviderNode select(String serviceKey, RoutingTable routingTable) throws Exception {
+        return select(serviceKey, routingTable, null);
+    }
+
+    /**
+     * 根据负载均衡策略和请求内容获取服务端节点
      *
-     * @param connectedServerNodes 已经跟服务端连接的节点
-     * @return
+     * @param serviceKey   服务关键字
+     * @param routingTable 当前的路由表
+     * @param request      待发送的请求，可以为 null
+     * @return 服务端节点
+     * @throws Exception 没有可用的服务提供者
      */
-    protected Map<String, List<ProviderInfo>> getServiceMap(Map<ProviderInfo, RpcClientHandler> connectedServerNodes) {
-        Map<String, List<ProviderInfo>> serviceMap = new HashMap<>();
-        if (connectedServerNodes != null && connectedServerNodes.size() > 0) {
-            for (ProviderInfo providerInfo : connectedServerNodes.keySet()) {
-                String serviceKey = ServiceKeyUtils.buildServiceKey(providerInfo.getServiceName(), providerInfo.getVersion());
-                List<ProviderInfo> protocolList = serviceMap.get(serviceKey);
-                if (CollectionUtils.isEmpty(protocolList)) {
-                    protocolList = new ArrayList<>();
-                }
-                protocolList.add(providerInfo);
-                serviceMap.putIfAbsent(serviceKey, protocolList);
-            }
+    public ProviderNode select(String serviceKey, RoutingTable routingTable, RpcRequest request) throws Exception {
+        ProviderNode[] nodes = routingTable.getNodes(serviceKey);
+        if (nodes == null || nodes.length == 0) {
+            throw new Exception("Can not find connection for service: " + serviceKey);
         }
-        return serviceMap;
+        ProviderNode node = doSelect(serviceKey, nodes, request);
+        if (nodes.length > 1 && !node.admit()) {
+            // 恢复期的节点未被放行时重新选择一次
+            node = doSelect(serviceKey, nodes, request);
+        }
+        return node;
+    }
+
+    /**
+     * 根据请求内容选择节点，默认忽略请求内容
+     *
+     * @param serviceKey 服务关键字
+     * @param nodes      服务的提供者节点，至少有一个
+     * @param request    待发送的请求，可以为 null
+     * @return 选中的节点
+     */
+    protected ProviderNode doSelect(String serviceKey, ProviderNode[] nodes, RpcRequest request) {
+        return doSelect(serviceKey, nodes);
     }
 
     /**
-     * 根据负载均衡策略获取服务端连接信息
+     * 从服务的提供者节点中选择一个，不得修改节点数组
      *
-     * @param serviceKey           服务关键字
-     * @param connectedServerNodes 已经跟服务端连接的节点
-     * @return 服务端连接信息
-     * @throws Exception
+     * @param serviceKey 服务关键字
+     * @param nodes      服务的提供者节点，至少有一个
+     * @return 选中的节点
      */
-    public abstract ProviderInfo select(String serviceKey, Map<ProviderInfo, RpcClientHandler> connectedServerNodes) throws Exception;
+    protected abstract ProviderNode doSelect(String serviceKey, ProviderNode[] nodes);
 
 }
@@ -0,0 +1,230 @@
+package com.leisurexi.rpc.client.route.impl;
+
+import com.leisurexi.rpc.client.route.ProviderNode;
+import com.leisurexi.rpc.client.route.RpcLoadBalance;
+import com.leisurexi.rpc.common.client.ProviderInfo;
+import com.leisurexi.rpc.common.codec.RpcRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 一致性哈希策略实现，相同路由 key 的请求总是落到同一个服务提供者上，便于服务端按 key 缓存。
+ * 路由 key 优先取请求显式指定的值，否则取指定下标的参数，要求其 hashCode 在不同 JVM 间稳定，如 String、Long。
+ * <p>
+ * 每个服务提供者按服务端地址在环上放置若干虚拟节点，数量与权重成正比。服务提供者上下线时在原有的环上
+ * 删除或合并对应的虚拟节点，其余节点位置不变，只有落在变化节点上的 key 会迁移
+ *
+ * @author: leisurexi
+ * @date: 2020-08-28 10:15 上午
+ */
+public class RpcLoadBalanceConsistentHash extends RpcLoadBalance {
+
+    /**
+     * 默认权重的服务提供者的虚拟节点数
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    /**
+     * 作为路由 key 的参数下标
+     */
+    private final int argumentIndex;
+
+    private final int virtualNodes;
+
+    /**
+     * 每个服务当前的哈希环
+     */
+    private final ConcurrentMap<String, Ring> rings = new ConcurrentHashMap<>();
+
+    public RpcLoadBalanceConsistentHash() {
+        this(0, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * @param argumentIndex 请求未显式指定路由 key 时，作为路由 key 的参数下标
+     * @param virtualNodes  默认权重的服务提供者的虚拟节点数
+     */
+    public RpcLoadBalanceConsistentHash(int argumentIndex, int virtualNodes) {
+        this.argumentIndex = argumentIndex;
+        this.virtualNodes = virtualNodes;
+    }
+
+    @Override
+    protected ProviderNode doSelect(String serviceKey, ProviderNode[] nodes, RpcRequest request) {
+        Object routingKey = routingKey(request);
+        if (routingKey == null || nodes.length == 1) {
+            return doSelect(serviceKey, nodes);
+        }
+        Ring ring = rings.get(serviceKey);
+        if (ring == null || ring.nodes != nodes) {
+            // 路由表重建后节点数组会被整体替换，在原有的环上增量更新
+            ring = Ring.update(ring, nodes, virtualNodes);
+            rings.put(serviceKey, ring);
+        }
+        return ring.select(mix(routingKey.hashCode()));
+    }
+
+    /**
+     * 没有路由 key 的请求随机选择
+     */
+    @Override
+    protected ProviderNode doSelect(String serviceKey, ProviderNode[] nodes) {
+        return nodes[ThreadLocalRandom.current().nextInt(nodes.length)];
+    }
+
+    private Object routingKey(RpcRequest request) {
+        if (request == null) {
+            return null;
+        }
+        if (request.getRoutingKey() != null) {
+            return request.getRoutingKey();
+        }
+        Object[] parameters = request.getParameters();
+        if (parameters != null && argumentIndex < parameters.length) {
+            return parameters[argumentIndex];
+        }
+        return null;
+    }
+
+    /**
+     * 打散 hashCode 的分布，相近的 key 也会落在环上相距较远的位置
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * 不可变的哈希环，虚拟节点按哈希值升序排列
+     */
+    private static class Ring {
+
+        private final ProviderNode[] nodes;
+
+        private final long[] hashes;
+
+        private final ProviderNode[] owners;
+
+        private Ring(ProviderNode[] nodes, long[] hashes, ProviderNode[] owners) {
+            this.nodes = nodes;
+            this.hashes = hashes;
+            this.owners = owners;
+        }
+
+        /**
+         * 顺时针找到第一个不小于 hash 的虚拟节点
+         */
+        ProviderNode select(long hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            if (index == hashes.length) {
+                index = 0;
+            }
+            return owners[index];
+        }
+
+        /**
+         * 在原有的环上删除已下线服务提供者的虚拟节点，并合并新上线服务提供者的虚拟节点
+         */
+        static Ring update(Ring previous, ProviderNode[] nodes, int virtualNodes) {
+            Map<ProviderInfo, ProviderNode> current = new HashMap<>(nodes.length * 2);
+            for (ProviderNode node : nodes) {
+                current.put(node.getProviderInfo(), node);
+            }
+            long[] hashes = new long[0];
+            ProviderNode[] owners = new ProviderNode[0];
+            Map<ProviderInfo, ProviderNode> existing = new HashMap<>();
+            if (previous != null) {
+                int count = 0;
+                hashes = new long[previous.hashes.length];
+                owners = new ProviderNode[previous.owners.length];
+                for (int i = 0; i < previous.hashes.length; i++) {
+                    // 保留的虚拟节点指向新路由表中的节点对象
+                    ProviderNode owner = current.get(previous.owners[i].getProviderInfo());
+                    if (owner != null) {
+                        hashes[count] = previous.hashes[i];
+                        owners[count++] = owner;
+                        existing.put(owner.getProviderInfo(), owner);
+                    }
+                }
+                hashes = Arrays.copyOf(hashes, count);
+                owners = Arrays.copyOf(owners, count);
+            }
+            Ring ring = new Ring(nodes, hashes, owners);
+            for (ProviderNode node : nodes) {
+                if (!existing.containsKey(node.getProviderInfo())) {
+                    ring = ring.merge(node, virtualHashes(node, virtualNodes));
+                }
+            }
+            return ring;
+        }
+
+        /**
+         * 合并一个服务提供者的虚拟节点
+         */
+        private Ring merge(ProviderNode node, long[] added) {
+            long[] mergedHashes = new long[hashes.length + added.length];
+            ProviderNode[] mergedOwners = new ProviderNode[mergedHashes.length];
+            int i = 0, j = 0, k = 0;
+            while (i < hashes.length || j < added.length) {
+                if (j == added.length || (i < hashes.length && hashes[i] <= added[j])) {
+                    mergedHashes[k] = hashes[i];
+                    mergedOwners[k++] = owners[i++];
+                } else {
+                    mergedHashes[k] = added[j++];
+                    mergedOwners[k++] = node;
+                }
+            }
+            return new Ring(nodes, mergedHashes, mergedOwners);
+        }
+
+        /**
+         * 按服务端地址计算虚拟节点的哈希值，同一地址重启后位置不变。每次 MD5 摘要产生两个虚拟节点
+         */
+        private static long[] virtualHashes(ProviderNode node, int virtualNodes) {
+            int replicas = Math.max(2, (int) ((long) virtualNodes * node.getWeight() / ProviderInfo.DEFAULT_WEIGHT));
+            long[] result = new long[replicas / 2 * 2];
+            MessageDigest md5 = md5();
+            String address = node.getProviderInfo().getAddress();
+            for (int i = 0; i < result.length / 2; i++) {
+                byte[] digest = md5.digest((address + "#" + i).getBytes(StandardCharsets.UTF_8));
+                result[i * 2] = toLong(digest, 0);
+                result[i * 2 + 1] = toLong(digest, 8);
+            }
+            Arrays.sort(result);
+            return result;
+        }
+
+        private static long toLong(byte[] bytes, int offset) {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (bytes[offset + i] & 0xFF);
+            }
+            return value;
+        }
+
+        private static MessageDigest md5() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("MD5 not supported", e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.leisurexi.rpc.client.route.impl;
+
+import com.leisurexi.rpc.client.route.ProviderNode;
+import com.leisurexi.rpc.client.route.RpcLoadBalance;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最少活跃调用策略实现，选择未完成请求数相对权重最少的服务提供者，处理慢的节点积压的请求多，自然分到更少的流量。
+ * 从随机位置开始遍历，负载相同时不会总是选中同一个节点
+ *
+ * @author: leisurexi
+ * @date: 2020-08-27 3:40 下午
+ */
+public class RpcLoadBalanceLeastActive extends RpcLoadBalance {
+
+    @Override
+    protected ProviderNode doSelect(String serviceKey, ProviderNode[] nodes) {
+        int length = nodes.length;
+        if (length == 1) {
+            return nodes[0];
+        }
+        int start = ThreadLocalRandom.current().nextInt(length);
+        ProviderNode selected = null;
+        long leastActive = 0;
+        long leastWeight = 1;
+        for (int i = 0; i < length; i++) {
+            ProviderNode node = nodes[(start + i) % length];
+            long active = node.getConnectionPool().getInFlightCount() + 1;
+            long weight = node.getWeight();
+            // active / weight < leastActive / leastWeight
+            if (selected == null || active * leastWeight < leastActive * weight) {
+                selected = node;
+                leastActive = active;
+                leastWeight = weight;
+            }
+        }
+        return selected;
+    }
+
+}
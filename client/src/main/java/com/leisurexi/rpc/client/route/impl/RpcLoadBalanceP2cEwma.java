@@ -0,0 +1,51 @@
+package com.leisurexi.rpc.client.route.impl;
+
+import com.leisurexi.rpc.client.connect.ProviderStats;
+import com.leisurexi.rpc.client.route.ProviderNode;
+import com.leisurexi.rpc.client.route.RpcLoadBalance;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * P2C (power of two choices) 策略实现，随机选出两个服务提供者，取负载较低的一个。
+ * 负载为响应时间的指数加权移动平均乘以未完成请求数加一，处理慢或积压多的节点都会被避开，
+ * 每次只比较两个节点，不会像全局最优那样让所有客户端同时涌向同一个节点
+ *
+ * @author: leisurexi
+ * @date: 2020-08-27 4:05 下午
+ */
+public class RpcLoadBalanceP2cEwma extends RpcLoadBalance {
+
+    /**
+     * 尚无响应时间采样但已有未完成请求的节点的负载，避免新节点在第一个响应返回前收到所有请求
+     */
+    private static final double PENALTY = Long.MAX_VALUE >> 16;
+
+    @Override
+    protected ProviderNode doSelect(String serviceKey, ProviderNode[] nodes) {
+        int length = nodes.length;
+        if (length == 1) {
+            return nodes[0];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(length);
+        int second = random.nextInt(length - 1);
+        if (second >= first) {
+            second++;
+        }
+        ProviderNode a = nodes[first];
+        ProviderNode b = nodes[second];
+        return load(a) <= load(b) ? a : b;
+    }
+
+    private static double load(ProviderNode node) {
+        int inFlight = node.getConnectionPool().getInFlightCount();
+        ProviderStats stats = node.getStats();
+        double latency = stats == null ? 0 : stats.getLatencyEwma();
+        if (latency == 0) {
+            return inFlight == 0 ? 0 : PENALTY + inFlight;
+        }
+        return latency * (inFlight + 1);
+    }
+
+}
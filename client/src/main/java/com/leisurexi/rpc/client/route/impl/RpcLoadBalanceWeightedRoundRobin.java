@@ -0,0 +1,106 @@
+package com.leisurexi.rpc.client.route.impl;
+
+import com.leisurexi.rpc.client.route.ProviderNode;
+import com.leisurexi.rpc.client.route.RpcLoadBalance;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 加权轮询策略实现，按服务提供者的权重分配请求。
+ * 路由表变化时按平滑加权轮询算法预先生成一轮的选择顺序，之后每次选择只需递增计数器，
+ * 权重高的节点在一轮中分散出现，不会连续收到一批请求
+ *
+ * @author: leisurexi
+ * @date: 2020-08-27 3:10 下午
+ */
+public class RpcLoadBalanceWeightedRoundRobin extends RpcLoadBalance {
+
+    /**
+     * 一轮选择顺序的最大长度，超过时按比例缩小权重
+     */
+    private static final int MAX_SEQUENCE_LENGTH = 1024;
+
+    /**
+     * 每个服务当前的选择顺序
+     */
+    private final ConcurrentMap<String, Schedule> schedules = new ConcurrentHashMap<>();
+
+    @Override
+    protected ProviderNode doSelect(String serviceKey, ProviderNode[] nodes) {
+        if (nodes.length == 1) {
+            return nodes[0];
+        }
+        Schedule schedule = schedules.get(serviceKey);
+        if (schedule == null || schedule.nodes != nodes) {
+            // 路由表重建后节点数组会被整体替换
+            schedule = new Schedule(nodes);
+            schedules.put(serviceKey, schedule);
+        }
+        return schedule.next();
+    }
+
+    /**
+     * 一组节点的一轮选择顺序
+     */
+    private static class Schedule {
+
+        private final ProviderNode[] nodes;
+
+        private final int[] sequence;
+
+        private final AtomicInteger position = new AtomicInteger();
+
+        Schedule(ProviderNode[] nodes) {
+            this.nodes = nodes;
+            int[] weights = new int[nodes.length];
+            int gcd = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                weights[i] = nodes[i].getWeight();
+                gcd = gcd(gcd, weights[i]);
+            }
+            int total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] /= gcd;
+                total += weights[i];
+            }
+            while (total > Math.max(MAX_SEQUENCE_LENGTH, nodes.length)) {
+                total = 0;
+                for (int i = 0; i < weights.length; i++) {
+                    weights[i] = Math.max(1, weights[i] / 2);
+                    total += weights[i];
+                }
+            }
+            this.sequence = new int[total];
+            int[] current = new int[weights.length];
+            for (int n = 0; n < total; n++) {
+                int selected = 0;
+                for (int i = 0; i < weights.length; i++) {
+                    current[i] += weights[i];
+                    if (current[i] > current[selected]) {
+                        selected = i;
+                    }
+                }
+                current[selected] -= total;
+                sequence[n] = selected;
+            }
+        }
+
+        ProviderNode next() {
+            int index = (position.getAndIncrement() & Integer.MAX_VALUE) % sequence.length;
+            return nodes[sequence[index]];
+        }
+
+        private static int gcd(int a, int b) {
+            while (b != 0) {
+                int t = a % b;
+                a = b;
+                b = t;
+            }
+            return a;
+        }
+
+    }
+
+}
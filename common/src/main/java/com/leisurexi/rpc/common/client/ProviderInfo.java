@@ -17,6 +17,11 @@ import java.util.Objects;
 @Builder
 public class ProviderInfo {
 
+    /**
+     * 默认权重
+     */
+    public static final int DEFAULT_WEIGHT = 100;
+
     /**
      * 唯一id
      */
@@ -41,6 +46,10 @@ public class ProviderInfo {
      * 注册时间
      */
     private long startTime;
+    /**
+     * 权重，用于按机器处理能力分配流量，未设置时为 {@link #DEFAULT_WEIGHT}
+     */
+    private int weight;
 
     public static ProviderInfo fromString(String str) {
         int index = str.indexOf('?');
@@ -63,11 +72,24 @@ public class ProviderInfo {
                 providerInfo.setVersion(kvpair[1]);
             } else if ("startTime".equals(kvpair[0])) {
                 providerInfo.setStartTime(Long.valueOf(kvpair[1]));
+            } else if ("weight".equals(kvpair[0])) {
+                providerInfo.setWeight(Integer.parseInt(kvpair[1]));
             }
         }
         return providerInfo;
     }
 
+    public int getWeight() {
+        return weight > 0 ? weight : DEFAULT_WEIGHT;
+    }
+
+    /**
+     * 服务端地址 host:port，同一地址上的服务共享连接
+     */
+    public String getAddress() {
+        return host + ":" + port;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -91,6 +113,7 @@ public class ProviderInfo {
 
     @Override
     public String toString() {
-        return host + ":" + port + "?uuid=" + uuid + "&serviceName=" + serviceName + "&version=" + version + "&startTime=" + startTime;
+        return host + ":" + port + "?uuid=" + uuid + "&serviceName=" + serviceName + "&version=" + version + "&startTime=" + startTime
+                + "&weight=" + getWeight();
     }
 }
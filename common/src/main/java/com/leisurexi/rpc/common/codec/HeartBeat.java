@@ -14,8 +14,8 @@ public final class HeartBeat {
     /** 心跳超时时间 */
     public static final int HEART_BEAT_TIMEOUT = 3 * HEART_BEAT_INTERVAL;
 
-    /** 心跳包消息id */
-    public static final String HEART_BEAT_ID = "BEAT_PING_PONG";
+    /** 心跳包消息id，业务请求id从 1 开始递增 */
+    public static final long HEART_BEAT_ID = 0L;
 
     public static RpcRequest HEART_BEAT_PING;
 
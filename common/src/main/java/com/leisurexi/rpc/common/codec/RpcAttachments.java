@@ -0,0 +1,140 @@
+package com.leisurexi.rpc.common.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.EncoderException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 请求和响应的附加信息编解码，附加信息在协议头的 {@link RpcProtocol#FLAG_ATTACHMENTS} 置位时写在消息体之前，不参与压缩
+ * <pre>
+ * +-------+--------+------------+-----+--------------+-------+-----+
+ * | count | key id | key length | key | value length | value | ... |
+ * |  2B   |   1B   |     2B     | nB  |      2B      |  nB   |     |
+ * +-------+--------+------------+-----+--------------+-------+-----+
+ * </pre>
+ * 常用的 key 预先分配了id，只占 1 个字节，解码时直接使用常量字符串；其他 key 的id为 0，之后是 UTF-8 编码的 key
+ *
+ * @author: leisurexi
+ * @date: 2020-08-26 10:24 上午
+ */
+public final class RpcAttachments {
+
+    /** 链路追踪id */
+    public static final String TRACE_ID = "trace-id";
+
+    /** 调用的 span id */
+    public static final String SPAN_ID = "span-id";
+
+    /** 租户id */
+    public static final String TENANT_ID = "tenant-id";
+
+    /** 路由提示 */
+    public static final String ROUTING_HINT = "routing-hint";
+
+    /**
+     * 预分配id的 key，下标即为 key id，0 表示 key 以字符串形式写出。只能在末尾追加
+     */
+    private static final String[] INTERNED_KEYS = {null, TRACE_ID, SPAN_ID, TENANT_ID, ROUTING_HINT};
+
+    /** key 和 value 编码后的最大字节数，以及最多的附加信息条数 */
+    private static final int MAX_LENGTH = 0xFFFF;
+
+    private RpcAttachments() {
+    }
+
+    /**
+     * 写出附加信息
+     *
+     * @param out         输出缓冲区
+     * @param attachments 附加信息，不能为空
+     */
+    public static void write(ByteBuf out, Map<String, String> attachments) {
+        if (attachments.size() > MAX_LENGTH) {
+            throw new EncoderException("Too many attachments: " + attachments.size());
+        }
+        out.writeShort(attachments.size());
+        for (Map.Entry<String, String> entry : attachments.entrySet()) {
+            String key = entry.getKey();
+            int keyId = keyId(key);
+            out.writeByte(keyId);
+            if (keyId == 0) {
+                writeString(out, key);
+            }
+            writeString(out, entry.getValue());
+        }
+    }
+
+    /**
+     * 读取附加信息
+     *
+     * @param in    输入缓冲区
+     * @param limit 附加信息最多可以读取的字节数
+     * @return 附加信息
+     */
+    public static Map<String, String> read(ByteBuf in, int limit) {
+        int end = in.readerIndex() + limit;
+        int count = readUnsignedShort(in, end);
+        Map<String, String> attachments = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            checkReadable(in, 1, end);
+            int keyId = in.readUnsignedByte();
+            String key;
+            if (keyId == 0) {
+                key = readString(in, end);
+            } else if (keyId < INTERNED_KEYS.length) {
+                key = INTERNED_KEYS[keyId];
+            } else {
+                throw new CorruptedFrameException("Unknown attachment key id: " + keyId);
+            }
+            attachments.put(key, readString(in, end));
+        }
+        return attachments;
+    }
+
+    private static int keyId(String key) {
+        // key 数量很少，直接比较引用，绝大多数情况下使用的就是这里的常量
+        for (int i = 1; i < INTERNED_KEYS.length; i++) {
+            if (INTERNED_KEYS[i] == key) {
+                return i;
+            }
+        }
+        for (int i = 1; i < INTERNED_KEYS.length; i++) {
+            if (INTERNED_KEYS[i].equals(key)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static void writeString(ByteBuf out, String value) {
+        int length = ByteBufUtil.utf8Bytes(value);
+        if (length > MAX_LENGTH) {
+            throw new EncoderException("Attachment too long: " + length + " bytes");
+        }
+        out.writeShort(length);
+        ByteBufUtil.reserveAndWriteUtf8(out, value, length);
+    }
+
+    private static String readString(ByteBuf in, int end) {
+        int length = readUnsignedShort(in, end);
+        checkReadable(in, length, end);
+        return in.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+
+    private static int readUnsignedShort(ByteBuf in, int end) {
+        checkReadable(in, Short.BYTES, end);
+        return in.readUnsignedShort();
+    }
+
+    private static void checkReadable(ByteBuf in, int length, int end) {
+        if (end - in.readerIndex() < length) {
+            throw new CorruptedFrameException("Attachments exceed the frame");
+        }
+    }
+
+}
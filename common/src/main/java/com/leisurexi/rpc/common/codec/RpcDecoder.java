@@ -1,46 +1,250 @@
 package com.leisurexi.rpc.common.codec;
 
+import com.leisurexi.rpc.common.compress.CompressionType;
+import com.leisurexi.rpc.common.exception.SerializationException;
 import com.leisurexi.rpc.common.serializer.Serializer;
+import com.leisurexi.rpc.common.serializer.SerializerFactory;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.Attribute;
+import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
- * RPC 解码器
+ * RPC 解码器，按照 {@link RpcProtocol} 读取协议头，必要时解压后根据消息类型反序列化消息体。
+ * 拆包和解码在同一个阶段完成：先读协议头，再等待消息体到齐，消息体超过长度上限时直接丢弃，不会为其分配内存；
+ * 较大的消息体改为组合缓冲区累积，避免累积过程中反复扩容复制
  *
  * @author: leisurexi
  * @date: 2020-08-13 10:19 上午
  */
+@Slf4j
 public class RpcDecoder extends ByteToMessageDecoder {
 
-    private Class<?> genericClass;
+    /**
+     * 消息体达到该长度时改用组合缓冲区累积
+     */
+    private static final int COMPOSITE_CUMULATION_THRESHOLD = 64 * 1024;
 
     private Serializer serializer;
 
-    public RpcDecoder(Class<?> genericClass, Serializer serializer) {
-        this.genericClass = genericClass;
+    private final int maxFrameLength;
+
+    /**
+     * 协议头已读取，正在等待消息体
+     */
+    private boolean headerRead;
+
+    private byte type;
+
+    private byte serializerId;
+
+    private int flags;
+
+    private long requestId;
+
+    private int bodyLength;
+
+    /**
+     * 超长消息还需要丢弃的字节数
+     */
+    private long discardRemaining;
+
+    public RpcDecoder(Serializer serializer) {
+        this(serializer, RpcProtocol.DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public RpcDecoder(Serializer serializer, int maxFrameLength) {
         this.serializer = serializer;
+        this.maxFrameLength = maxFrameLength;
     }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-        if (in.readableBytes() < 4) {
-            return;
+        if (discardRemaining > 0) {
+            discard(in);
+            if (discardRemaining > 0) {
+                return;
+            }
+        }
+        if (!headerRead) {
+            if (in.readableBytes() < RpcProtocol.HEADER_LENGTH) {
+                return;
+            }
+            readHeader(in);
+            if (bodyLength > maxFrameLength) {
+                discardRemaining = bodyLength;
+                discard(in);
+                reject(ctx, out, "Frame length " + bodyLength + " exceeds the limit " + maxFrameLength);
+                return;
+            }
+            headerRead = true;
+            if (bodyLength >= COMPOSITE_CUMULATION_THRESHOLD) {
+                setCumulator(COMPOSITE_CUMULATOR);
+            }
         }
-        in.markReaderIndex();
-        // 获取数据的长度
-        int dataLength = in.readInt();
         // 如果可读字节数据小于数据长度，代表是半包
-        if (in.readableBytes() < dataLength) {
-            in.resetReaderIndex();
+        if (in.readableBytes() < bodyLength) {
+            return;
+        }
+        headerRead = false;
+        if (bodyLength >= COMPOSITE_CUMULATION_THRESHOLD) {
+            setCumulator(MERGE_CUMULATOR);
+        }
+        decodeFrame(ctx, in, out);
+    }
+
+    private void readHeader(ByteBuf in) {
+        short magic = in.readShort();
+        if (magic != RpcProtocol.MAGIC) {
+            throw new CorruptedFrameException("Illegal magic number: " + magic);
+        }
+        byte version = in.readByte();
+        if (version != RpcProtocol.VERSION) {
+            throw new CorruptedFrameException("Unsupported protocol version: " + version);
+        }
+        type = in.readByte();
+        serializerId = in.readByte();
+        flags = in.readUnsignedByte();
+        requestId = in.readLong();
+        bodyLength = in.readInt();
+        if (bodyLength < 0) {
+            throw new CorruptedFrameException("Negative frame length: " + bodyLength);
+        }
+    }
+
+    private void discard(ByteBuf in) {
+        int length = (int) Math.min(discardRemaining, in.readableBytes());
+        in.skipBytes(length);
+        discardRemaining -= length;
+    }
+
+    /**
+     * 拒绝超长的消息：请求直接回复错误响应，响应转换成错误响应交给客户端处理器结束调用，其他消息关闭连接
+     */
+    private void reject(ChannelHandlerContext ctx, List<Object> out, String message) {
+        log.warn("Reject {} frame [{}] from {}: {}", type, requestId, ctx.channel().remoteAddress(), message);
+        if (type == RpcProtocol.TYPE_REQUEST) {
+            ctx.channel().writeAndFlush(RpcResponse.error(requestId, RpcErrorCode.FRAME_TOO_LONG, message));
+        } else if (type == RpcProtocol.TYPE_RESPONSE) {
+            out.add(RpcResponse.error(requestId, RpcErrorCode.FRAME_TOO_LONG, message));
+        } else {
+            throw new TooLongFrameException(message);
+        }
+    }
+
+    private void decodeFrame(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        int dataLength = bodyLength;
+        if (type == RpcProtocol.TYPE_HEARTBEAT) {
+            in.skipBytes(dataLength);
+            out.add(HeartBeat.HEART_BEAT_PING);
             return;
         }
-        byte[] data = new byte[dataLength];
-        in.readBytes(data);
-        Object obj = serializer.deserialize(data, genericClass);
-        out.add(obj);
+        Serializer serializer = serializerId == this.serializer.getId()
+                ? this.serializer : SerializerFactory.getSerializer(serializerId);
+        if (serializer == null) {
+            in.skipBytes(dataLength);
+            throw new CorruptedFrameException("Unsupported serializer: " + serializerId);
+        }
+        CompressionType compression = CompressionType.valueOf(flags & RpcProtocol.FLAG_COMPRESSION_MASK);
+        boolean compressed = (flags & RpcProtocol.FLAG_COMPRESSED) != 0;
+        if (compression == null || (compressed && compression == CompressionType.NONE)) {
+            in.skipBytes(dataLength);
+            throw new CorruptedFrameException("Unsupported compression flags: " + flags);
+        }
+        int bodyEnd = in.readerIndex() + dataLength;
+        try {
+            Map<String, String> attachments = null;
+            if ((flags & RpcProtocol.FLAG_ATTACHMENTS) != 0) {
+                attachments = RpcAttachments.read(in, dataLength);
+                dataLength = bodyEnd - in.readerIndex();
+            }
+            if (!compressed) {
+                // 直接从输入缓冲区中反序列化，不再复制到二进制数组
+                decodeBody(ctx, in, dataLength, type, requestId, serializer, compression, attachments, out);
+                return;
+            }
+            int rawLength = in.readInt();
+            if (rawLength < 0 || rawLength > maxFrameLength) {
+                reject(ctx, out, "Decompressed length " + rawLength + " exceeds the limit " + maxFrameLength);
+                return;
+            }
+            ByteBuf raw = ctx.alloc().buffer(rawLength, rawLength);
+            try {
+                compression.getCompressor().decompress(in, dataLength - Integer.BYTES, raw);
+                if (raw.readableBytes() != rawLength) {
+                    throw new CorruptedFrameException("Decompressed length mismatch, expect " + rawLength
+                            + " but " + raw.readableBytes());
+                }
+                decodeBody(ctx, raw, rawLength, type, requestId, serializer, compression, attachments, out);
+            } finally {
+                raw.release();
+            }
+        } finally {
+            in.readerIndex(bodyEnd);
+        }
+    }
+
+    private void decodeBody(ChannelHandlerContext ctx, ByteBuf in, int length, byte type, long requestId,
+                            Serializer serializer, CompressionType compression, Map<String, String> attachments,
+                            List<Object> out) throws Exception {
+        if (type == RpcProtocol.TYPE_REQUEST) {
+            RpcRequest request;
+            try {
+                request = deserialize(serializer, in, length, RpcRequest.class);
+            } catch (SerializationException e) {
+                // 只回复错误响应，连接上的其他请求不受影响
+                log.warn("Failed to deserialize request [{}] from {}", requestId, ctx.channel().remoteAddress(), e);
+                ctx.channel().writeAndFlush(RpcResponse.error(requestId, RpcErrorCode.SERIALIZATION_ERROR, e.getMessage()));
+                return;
+            }
+            request.setRequestId(requestId);
+            request.setCompression(compression);
+            request.setAttachments(attachments);
+            // 记录请求使用的序列化方式，响应按同样的方式编码
+            Attribute<Serializer> attr = ctx.channel().attr(RpcProtocol.SERIALIZER_KEY);
+            if (attr.get() != serializer) {
+                attr.set(serializer);
+            }
+            out.add(request);
+        } else if (type == RpcProtocol.TYPE_RESPONSE) {
+            RpcResponse response;
+            try {
+                response = deserialize(serializer, in, length, RpcResponse.class);
+            } catch (SerializationException e) {
+                // 协议头已经读出请求id，转换成错误响应立即结束调用，不必等到超时
+                log.warn("Failed to deserialize response [{}] from {}", requestId, ctx.channel().remoteAddress(), e);
+                out.add(RpcResponse.error(requestId, RpcErrorCode.SERIALIZATION_ERROR, e.getMessage()));
+                return;
+            }
+            response.setRequestId(requestId);
+            response.setCompression(compression);
+            response.setAttachments(attachments);
+            out.add(response);
+        } else if (type == RpcProtocol.TYPE_HANDSHAKE) {
+            out.add(serializer.deserialize(in, length, RpcMethodTable.class));
+        } else {
+            throw new CorruptedFrameException("Unknown message type: " + type);
+        }
+    }
+
+    /**
+     * 反序列化消息体，各序列化方式抛出的异常统一转换成 {@link SerializationException}
+     */
+    private static <T> T deserialize(Serializer serializer, ByteBuf in, int length, Class<T> clazz) {
+        try {
+            return serializer.deserialize(in, length, clazz);
+        } catch (SerializationException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException(clazz.getSimpleName() + " 反序列化异常: " + e.getMessage(), e);
+        }
     }
 
 }
@@ -1,34 +1,115 @@
 package com.leisurexi.rpc.common.codec;
 
+import com.leisurexi.rpc.common.compress.CompressionType;
 import com.leisurexi.rpc.common.serializer.Serializer;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
+import java.io.IOException;
+import java.util.Map;
+
 /**
- * RPC 编码器
+ * RPC 编码器，按照 {@link RpcProtocol} 写出协议头和消息体，
+ * 消息体达到压缩阈值时按消息协商的压缩方式压缩
  *
  * @author: leisurexi
  * @date: 2020-08-13 11:03 上午
  */
-public class RpcEncoder extends MessageToByteEncoder {
-
-    private Class<?> genericClass;
+public class RpcEncoder extends MessageToByteEncoder<Object> {
 
     private Serializer serializer;
 
-    public RpcEncoder(Class<?> genericClass, Serializer serializer) {
-        this.genericClass = genericClass;
+    private final int compressThreshold;
+
+    public RpcEncoder(Serializer serializer) {
+        this(serializer, RpcProtocol.DEFAULT_COMPRESS_THRESHOLD);
+    }
+
+    public RpcEncoder(Serializer serializer, int compressThreshold) {
         this.serializer = serializer;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public boolean acceptOutboundMessage(Object msg) throws Exception {
+        return msg instanceof RpcRequest || msg instanceof RpcResponse || msg instanceof RpcMethodTable;
     }
 
     @Override
     protected void encode(ChannelHandlerContext ctx, Object in, ByteBuf out) throws Exception {
-        if (genericClass.isInstance(in)) {
-            byte[] data = serializer.serialize(in);
-            out.writeInt(data.length);
-            out.writeBytes(data);
+        Serializer negotiated = ctx.channel().attr(RpcProtocol.SERIALIZER_KEY).get();
+        Serializer serializer = negotiated != null ? negotiated : this.serializer;
+        if (in instanceof RpcRequest) {
+            RpcRequest request = (RpcRequest) in;
+            if (request.getRequestId() == HeartBeat.HEART_BEAT_ID) {
+                writeHeader(out, serializer, RpcProtocol.TYPE_HEARTBEAT, 0, HeartBeat.HEART_BEAT_ID, 0);
+                return;
+            }
+            writeMessage(ctx, out, serializer, RpcProtocol.TYPE_REQUEST, request.getCompression(), request.getRequestId(),
+                    request.getAttachments(), request);
+        } else if (in instanceof RpcResponse) {
+            RpcResponse response = (RpcResponse) in;
+            writeMessage(ctx, out, serializer, RpcProtocol.TYPE_RESPONSE, response.getCompression(), response.getRequestId(),
+                    response.getAttachments(), response);
+        } else {
+            writeMessage(ctx, out, serializer, RpcProtocol.TYPE_HANDSHAKE, null, 0L, null, in);
+        }
+    }
+
+    private void writeMessage(ChannelHandlerContext ctx, ByteBuf out, Serializer serializer, byte type,
+                              CompressionType compression, long requestId, Map<String, String> attachments,
+                              Object message) throws IOException {
+        int headerStart = out.writerIndex();
+        int flags = compression != null ? compression.getId() : 0;
+        boolean hasAttachments = attachments != null && !attachments.isEmpty();
+        if (hasAttachments) {
+            flags |= RpcProtocol.FLAG_ATTACHMENTS;
+        }
+        writeHeader(out, serializer, type, flags, requestId, 0);
+        int frameStart = out.writerIndex();
+        if (hasAttachments) {
+            RpcAttachments.write(out, attachments);
         }
+        // 直接序列化到输出缓冲区中，完成后回填消息体长度
+        int bodyStart = out.writerIndex();
+        serializer.serialize(message, out);
+        if (compression != null && compression != CompressionType.NONE && out.writerIndex() - bodyStart >= compressThreshold) {
+            compressBody(ctx, out, compression, headerStart, bodyStart);
+        }
+        out.setInt(frameStart - RpcProtocol.LENGTH_FIELD_LENGTH, out.writerIndex() - frameStart);
+    }
+
+    /**
+     * 压缩已写出的消息体，压缩后没有变小时保留原始消息体
+     */
+    private void compressBody(ChannelHandlerContext ctx, ByteBuf out, CompressionType compression,
+                              int headerStart, int bodyStart) throws IOException {
+        int bodyLength = out.writerIndex() - bodyStart;
+        ByteBuf compressed = ctx.alloc().buffer(bodyLength >>> 1);
+        try {
+            compression.getCompressor().compress(out.slice(bodyStart, bodyLength), compressed);
+            if (compressed.readableBytes() + Integer.BYTES >= bodyLength) {
+                return;
+            }
+            out.writerIndex(bodyStart);
+            out.writeInt(bodyLength);
+            out.writeBytes(compressed);
+            int flagsIndex = headerStart + RpcProtocol.FLAGS_OFFSET;
+            out.setByte(flagsIndex, out.getByte(flagsIndex) | RpcProtocol.FLAG_COMPRESSED);
+        } finally {
+            compressed.release();
+        }
+    }
+
+    private void writeHeader(ByteBuf out, Serializer serializer, byte type, int flags, long requestId, int bodyLength) {
+        out.writeShort(RpcProtocol.MAGIC);
+        out.writeByte(RpcProtocol.VERSION);
+        out.writeByte(type);
+        out.writeByte(serializer.getId());
+        out.writeByte(flags);
+        out.writeLong(requestId);
+        out.writeInt(bodyLength);
     }
 
 }
@@ -0,0 +1,29 @@
+package com.leisurexi.rpc.common.codec;
+
+/**
+ * 错误响应的错误码，调用方可据此区分服务异常和框架拒绝的请求
+ *
+ * @author: leisurexi
+ * @date: 2020-08-26 9:40 上午
+ */
+public final class RpcErrorCode {
+
+    /** 未区分的错误 */
+    public static final int UNKNOWN = 0;
+
+    /** 服务方法执行抛出异常 */
+    public static final int SERVICE_ERROR = 1;
+
+    /** 服务端繁忙，请求被拒绝执行 */
+    public static final int SERVER_BUSY = 2;
+
+    /** 消息长度超过上限，消息体已被丢弃 */
+    public static final int FRAME_TOO_LONG = 3;
+
+    /** 消息体反序列化失败，消息体已被丢弃 */
+    public static final int SERIALIZATION_ERROR = 4;
+
+    private RpcErrorCode() {
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.leisurexi.rpc.common.codec;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 方法id表，连接建立后由服务端下发给客户端，
+ * 之后的请求只需携带方法id和参数
+ *
+ * @author: leisurexi
+ * @date: 2020-08-20 3:26 下午
+ */
+@Data
+public class RpcMethodTable implements Serializable {
+
+    private static final long serialVersionUID = 2469143805932765210L;
+
+    /**
+     * 方法 key -> 方法id
+     *
+     * @see com.leisurexi.rpc.common.util.ServiceKeyUtils#buildMethodKey(String, String, Class[])
+     */
+    private Map<String, Integer> methodIds = new HashMap<>();
+
+    /**
+     * 获取方法id
+     *
+     * @param methodKey 方法 key
+     * @return 方法id，不存在时返回 0
+     */
+    public int getMethodId(String methodKey) {
+        Integer methodId = methodIds.get(methodKey);
+        return methodId == null ? 0 : methodId;
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.leisurexi.rpc.common.codec;
+
+import com.leisurexi.rpc.common.serializer.Serializer;
+import io.netty.util.AttributeKey;
+
+/**
+ * RPC 二进制协议定义
+ * <pre>
+ * +-------+---------+------+------------+-------+-----------+-------------+----------+
+ * | magic | version | type | serializer | flags | requestId | body length |   body   |
+ * |  2B   |   1B    |  1B  |     1B     |  1B   |    8B     |     4B      |    nB    |
+ * +-------+---------+------+------------+-------+-----------+-------------+----------+
+ * </pre>
+ * flags 低 3 位为协商的压缩方式 id，服务端按请求的压缩方式压缩响应；
+ * 第 4 位表示消息体已被压缩，此时消息体以 4 字节的原始长度开头；
+ * 第 5 位表示消息体之前有附加信息，格式见 {@link RpcAttachments}，附加信息不参与压缩，长度计入 body length
+ *
+ * @author: leisurexi
+ * @date: 2020-08-20 10:12 上午
+ */
+public final class RpcProtocol {
+
+    /** 魔数 */
+    public static final short MAGIC = (short) 0xDABB;
+
+    /** 协议版本号 */
+    public static final byte VERSION = 2;
+
+    /** 请求消息 */
+    public static final byte TYPE_REQUEST = 1;
+
+    /** 响应消息 */
+    public static final byte TYPE_RESPONSE = 2;
+
+    /** 心跳消息 */
+    public static final byte TYPE_HEARTBEAT = 3;
+
+    /** 握手消息，连接建立后服务端下发方法id表 */
+    public static final byte TYPE_HANDSHAKE = 4;
+
+    /** 压缩方式 id 掩码 */
+    public static final int FLAG_COMPRESSION_MASK = 0x07;
+
+    /** 消息体已压缩 */
+    public static final int FLAG_COMPRESSED = 0x08;
+
+    /** 消息体之前有附加信息 */
+    public static final int FLAG_ATTACHMENTS = 0x10;
+
+    /** 默认的压缩阈值，序列化后小于该字节数的消息体不压缩 */
+    public static final int DEFAULT_COMPRESS_THRESHOLD = 2048;
+
+    /** 默认的消息体长度上限 */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    /** 标志位在协议头中的偏移量 */
+    public static final int FLAGS_OFFSET = 5;
+
+    /** 消息体长度字段在协议头中的偏移量 */
+    public static final int LENGTH_FIELD_OFFSET = 14;
+
+    /** 消息体长度字段所占字节数 */
+    public static final int LENGTH_FIELD_LENGTH = 4;
+
+    /** 协议头长度 */
+    public static final int HEADER_LENGTH = LENGTH_FIELD_OFFSET + LENGTH_FIELD_LENGTH;
+
+    /** 与对端协商出的序列化方式，服务端按请求使用的序列化方式写回响应 */
+    public static final AttributeKey<Serializer> SERIALIZER_KEY = AttributeKey.valueOf("rpc.serializer");
+
+    private RpcProtocol() {
+    }
+
+}
@@ -1,8 +1,10 @@
 package com.leisurexi.rpc.common.codec;
 
+import com.leisurexi.rpc.common.compress.CompressionType;
 import lombok.Data;
 
 import java.io.Serializable;
+import java.util.Map;
 
 /**
  * RPC 请求
@@ -16,9 +18,27 @@ public class RpcRequest implements Serializable {
     private static final long serialVersionUID = -3787113902918627530L;
 
     /**
-     * 请求id
+     * 请求id，写在协议头中，不参与序列化
      */
-    private String requestId;
+    private transient long requestId;
+    /**
+     * 压缩方式，写在协议头中，不参与序列化，为 null 时不压缩
+     */
+    private transient CompressionType compression;
+    /**
+     * 一致性哈希负载均衡使用的路由 key，只在客户端使用，不参与序列化
+     */
+    private transient Object routingKey;
+    /**
+     * 附加信息，写在协议头之后，不参与序列化，没有附加信息时为 null
+     *
+     * @see RpcAttachments
+     */
+    private transient Map<String, String> attachments;
+    /**
+     * 方法id，由服务端在握手时分配，大于 0 时不再传输类名、方法名和参数类型
+     */
+    private int methodId;
     /**
      * 类名
      */
@@ -39,5 +59,10 @@ public class RpcRequest implements Serializable {
      * 版本号
      */
     private String version;
+    /**
+     * 剩余的超时时间（毫秒），为 0 时不超时。传输剩余时间而不是绝对截止时间，不依赖两端的时钟同步，
+     * 服务端从收到请求开始计算截止时间
+     */
+    private long timeout;
 
 }
@@ -1,8 +1,10 @@
 package com.leisurexi.rpc.common.codec;
 
+import com.leisurexi.rpc.common.compress.CompressionType;
 import lombok.Data;
 
 import java.io.Serializable;
+import java.util.Map;
 
 /**
  * RPC 响应
@@ -16,9 +18,23 @@ public class RpcResponse implements Serializable {
     private static final long serialVersionUID = 8915935790241399277L;
 
     /**
-     * 请求id
+     * 请求id，写在协议头中，不参与序列化
      */
-    private String requestId;
+    private transient long requestId;
+    /**
+     * 压缩方式，写在协议头中，不参与序列化，为 null 时不压缩
+     */
+    private transient CompressionType compression;
+    /**
+     * 附加信息，写在协议头之后，不参与序列化，没有附加信息时为 null
+     *
+     * @see RpcAttachments
+     */
+    private transient Map<String, String> attachments;
+    /**
+     * 错误码，见 {@link RpcErrorCode}
+     */
+    private int errorCode;
     /**
      * 错误信息
      */
@@ -32,4 +48,19 @@ public class RpcResponse implements Serializable {
         return this.error != null;
     }
 
+    /**
+     * 创建错误响应
+     *
+     * @param requestId 请求id
+     * @param errorCode 错误码
+     * @param error     错误信息
+     */
+    public static RpcResponse error(long requestId, int errorCode, String error) {
+        RpcResponse response = new RpcResponse();
+        response.setRequestId(requestId);
+        response.setErrorCode(errorCode);
+        response.setError(error);
+        return response;
+    }
+
 }
@@ -0,0 +1,58 @@
+package com.leisurexi.rpc.common.compress;
+
+import com.leisurexi.rpc.common.compress.impl.DeflateCompressor;
+import com.leisurexi.rpc.common.compress.impl.SnappyCompressor;
+
+/**
+ * 压缩方式，id 写在协议头的标志位中
+ *
+ * @author: leisurexi
+ * @date: 2020-08-25 10:12 上午
+ */
+public enum CompressionType {
+
+    /**
+     * 不压缩
+     */
+    NONE((byte) 0, null),
+
+    /**
+     * JDK Deflater，不需要额外依赖，压缩率高但较耗 CPU
+     */
+    DEFLATE((byte) 1, new DeflateCompressor()),
+
+    /**
+     * Snappy，压缩率较低但速度快
+     */
+    SNAPPY((byte) 2, new SnappyCompressor());
+
+    private static final CompressionType[] TYPES = values();
+
+    private final byte id;
+
+    private final Compressor compressor;
+
+    CompressionType(byte id, Compressor compressor) {
+        this.id = id;
+        this.compressor = compressor;
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    public Compressor getCompressor() {
+        return compressor;
+    }
+
+    /**
+     * 根据 id 获取压缩方式
+     *
+     * @param id 压缩方式 id
+     * @return 压缩方式，不存在时返回 null
+     */
+    public static CompressionType valueOf(int id) {
+        return id >= 0 && id < TYPES.length ? TYPES[id] : null;
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.leisurexi.rpc.common.compress;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+
+/**
+ * 消息体压缩接口
+ *
+ * @author: leisurexi
+ * @date: 2020-08-25 10:05 上午
+ */
+public interface Compressor {
+
+    /**
+     * 压缩 in 中全部可读字节，写入 out
+     *
+     * @param in  待压缩数据
+     * @param out 输出缓冲区
+     */
+    void compress(ByteBuf in, ByteBuf out) throws IOException;
+
+    /**
+     * 从 in 中读取 length 个字节解压，写入 out
+     *
+     * @param in     压缩数据
+     * @param length 压缩数据长度
+     * @param out    输出缓冲区
+     */
+    void decompress(ByteBuf in, int length, ByteBuf out) throws IOException;
+
+}
@@ -0,0 +1,100 @@
+package com.leisurexi.rpc.common.compress.impl;
+
+import com.leisurexi.rpc.common.compress.Compressor;
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 基于 JDK {@link Deflater} 的压缩实现，Deflater、Inflater 持有本地内存，池化复用
+ *
+ * @author: leisurexi
+ * @date: 2020-08-25 10:20 上午
+ */
+public class DeflateCompressor implements Compressor {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private final Queue<Deflater> deflaterPool = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Inflater> inflaterPool = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        Deflater deflater = deflaterPool.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED, true);
+        }
+        try {
+            setInput(deflater, in);
+            deflater.finish();
+            byte[] chunk = out.hasArray() ? null : new byte[CHUNK_SIZE];
+            while (!deflater.finished()) {
+                if (chunk == null) {
+                    out.ensureWritable(CHUNK_SIZE);
+                    int n = deflater.deflate(out.array(), out.arrayOffset() + out.writerIndex(), out.writableBytes());
+                    out.writerIndex(out.writerIndex() + n);
+                } else {
+                    out.writeBytes(chunk, 0, deflater.deflate(chunk));
+                }
+            }
+            in.skipBytes(in.readableBytes());
+        } finally {
+            deflater.reset();
+            deflaterPool.offer(deflater);
+        }
+    }
+
+    @Override
+    public void decompress(ByteBuf in, int length, ByteBuf out) throws IOException {
+        Inflater inflater = inflaterPool.poll();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        try {
+            setInput(inflater, in.readSlice(length));
+            byte[] chunk = out.hasArray() ? null : new byte[CHUNK_SIZE];
+            while (!inflater.finished() && !inflater.needsInput()) {
+                if (chunk == null) {
+                    // 输出缓冲区有容量上限时，超出上限会抛出异常，防止解压出远超声明长度的数据
+                    out.ensureWritable(out.maxWritableBytes() > 0 ? Math.min(CHUNK_SIZE, out.maxWritableBytes()) : 1);
+                    int n = inflater.inflate(out.array(), out.arrayOffset() + out.writerIndex(), out.writableBytes());
+                    out.writerIndex(out.writerIndex() + n);
+                } else {
+                    out.writeBytes(chunk, 0, inflater.inflate(chunk));
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid deflate data", e);
+        } finally {
+            inflater.reset();
+            inflaterPool.offer(inflater);
+        }
+    }
+
+    private static void setInput(Deflater deflater, ByteBuf in) {
+        if (in.hasArray()) {
+            deflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+        } else {
+            byte[] bytes = new byte[in.readableBytes()];
+            in.getBytes(in.readerIndex(), bytes);
+            deflater.setInput(bytes);
+        }
+    }
+
+    private static void setInput(Inflater inflater, ByteBuf in) {
+        if (in.hasArray()) {
+            inflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+        } else {
+            byte[] bytes = new byte[in.readableBytes()];
+            in.getBytes(in.readerIndex(), bytes);
+            inflater.setInput(bytes);
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.leisurexi.rpc.common.compress.impl;
+
+import com.leisurexi.rpc.common.compress.Compressor;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.compression.Snappy;
+
+/**
+ * 基于 Netty 内置 {@link Snappy} 的压缩实现，直接读写 ByteBuf。
+ * Netty 的 Snappy 编码不支持 32KB 以上的输入，所以按块压缩，每块以 4 字节的压缩后长度开头
+ *
+ * @author: leisurexi
+ * @date: 2020-08-25 10:32 上午
+ */
+public class SnappyCompressor implements Compressor {
+
+    private static final int BLOCK_SIZE = 16 * 1024;
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        // Snappy 实例带有解码状态，不是线程安全的，每次新建，开销很小
+        Snappy snappy = new Snappy();
+        while (in.isReadable()) {
+            int lengthIndex = out.writerIndex();
+            out.writeInt(0);
+            // Snappy 编码假定输入从下标 0 开始，所以每块单独切片
+            int blockLength = Math.min(in.readableBytes(), BLOCK_SIZE);
+            snappy.encode(in.readSlice(blockLength), out, blockLength);
+            out.setInt(lengthIndex, out.writerIndex() - lengthIndex - Integer.BYTES);
+        }
+    }
+
+    @Override
+    public void decompress(ByteBuf in, int length, ByteBuf out) {
+        ByteBuf blocks = in.readSlice(length);
+        Snappy snappy = new Snappy();
+        while (blocks.isReadable()) {
+            int blockLength = blocks.readInt();
+            snappy.decode(blocks.readSlice(blockLength), out);
+            snappy.reset();
+        }
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.leisurexi.rpc.common.context;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RPC 调用上下文，与当前线程绑定
+ * <p>
+ * 服务端处理请求时会把请求的截止时间放入上下文，服务实现中发起的嵌套调用继承该截止时间，
+ * 只能使用剩余的时间；调用入口也可以通过 {@link #setTimeout(long, TimeUnit)} 为之后的调用设置总的时间预算。
+ * <p>
+ * 附加信息随之后发起的每个调用发送，服务端处理请求时上下文中是请求携带的附加信息，同样会传递给嵌套调用；
+ * 服务实现通过 {@link #setResponseAttachment(String, String)} 设置随响应返回的附加信息，
+ * 客户端从 RpcFuture 中获取
+ *
+ * @author: leisurexi
+ * @date: 2020-08-25 4:18 下午
+ */
+public final class RpcContext {
+
+    private static final ThreadLocal<RpcContext> LOCAL = ThreadLocal.withInitial(RpcContext::new);
+
+    /**
+     * 截止时间，{@link System#nanoTime()}，为 0 时没有截止时间
+     */
+    private long deadlineNanos;
+    /**
+     * 随调用发送的附加信息，写时复制，请求直接引用当前的快照，为 null 时没有附加信息
+     */
+    private Map<String, String> attachments;
+    /**
+     * 随响应返回的附加信息，为 null 时没有附加信息
+     */
+    private Map<String, String> responseAttachments;
+
+    private RpcContext() {
+    }
+
+    /**
+     * 获取当前线程的上下文，不存在时创建
+     */
+    public static RpcContext getContext() {
+        return LOCAL.get();
+    }
+
+    /**
+     * 清除当前线程的上下文
+     */
+    public static void removeContext() {
+        LOCAL.remove();
+    }
+
+    /**
+     * 设置从现在开始的时间预算，之后发起的调用最多等待到该截止时间
+     *
+     * @param timeout 时间预算
+     * @param unit    时间单位
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        setDeadlineNanos(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * 设置截止时间
+     *
+     * @param deadlineNanos 截止时间，{@link System#nanoTime()}
+     */
+    public void setDeadlineNanos(long deadlineNanos) {
+        // nanoTime 恰好为 0 时顺延 1ns，避免与没有截止时间混淆
+        this.deadlineNanos = deadlineNanos == 0 ? 1 : deadlineNanos;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    public boolean hasDeadline() {
+        return deadlineNanos != 0;
+    }
+
+    /**
+     * 清除截止时间
+     */
+    public void clearDeadline() {
+        this.deadlineNanos = 0;
+    }
+
+    /**
+     * 距离截止时间剩余的纳秒数，已过期时小于等于 0
+     */
+    public long getRemainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    /**
+     * 设置随之后发起的调用发送的附加信息
+     *
+     * @param key   key，常用的 key 见 {@link com.leisurexi.rpc.common.codec.RpcAttachments}
+     * @param value value，为 null 时移除
+     */
+    public void setAttachment(String key, String value) {
+        if (value == null) {
+            removeAttachment(key);
+            return;
+        }
+        Map<String, String> copy = attachments == null ? new HashMap<>(4) : new HashMap<>(attachments);
+        copy.put(key, value);
+        this.attachments = Collections.unmodifiableMap(copy);
+    }
+
+    public String getAttachment(String key) {
+        Map<String, String> attachments = this.attachments;
+        return attachments == null ? null : attachments.get(key);
+    }
+
+    public void removeAttachment(String key) {
+        if (attachments == null || !attachments.containsKey(key)) {
+            return;
+        }
+        Map<String, String> copy = new HashMap<>(attachments);
+        copy.remove(key);
+        this.attachments = copy.isEmpty() ? null : Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * 获取附加信息的只读快照
+     *
+     * @return 附加信息，没有附加信息时为 null
+     */
+    public Map<String, String> getAttachments() {
+        return attachments;
+    }
+
+    /**
+     * 整体替换附加信息，用于服务端放入请求携带的附加信息
+     *
+     * @param attachments 附加信息，为 null 或空时清除
+     */
+    public void setAttachments(Map<String, String> attachments) {
+        this.attachments = attachments == null || attachments.isEmpty() ? null : Collections.unmodifiableMap(attachments);
+    }
+
+    /**
+     * 设置随响应返回的附加信息，只在服务端处理请求时有效
+     *
+     * @param key   key
+     * @param value value，为 null 时移除
+     */
+    public void setResponseAttachment(String key, String value) {
+        if (value == null) {
+            if (responseAttachments != null) {
+                responseAttachments.remove(key);
+            }
+            return;
+        }
+        if (responseAttachments == null) {
+            responseAttachments = new HashMap<>(4);
+        }
+        responseAttachments.put(key, value);
+    }
+
+    /**
+     * 获取随响应返回的附加信息
+     *
+     * @return 附加信息，没有附加信息时为 null
+     */
+    public Map<String, String> getResponseAttachments() {
+        return responseAttachments == null || responseAttachments.isEmpty() ? null : responseAttachments;
+    }
+
+    /**
+     * 清除截止时间和附加信息，线程复用时上下文对象保留，不需要重新创建
+     */
+    public void clear() {
+        this.deadlineNanos = 0;
+        this.attachments = null;
+        this.responseAttachments = null;
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.leisurexi.rpc.common.exception;
+
+/**
+ * RPC 调用异常
+ *
+ * @author: leisurexi
+ * @date: 2020-08-23 10:02 上午
+ */
+public class RpcException extends RuntimeException {
+
+    private static final long serialVersionUID = -6373806153462938410L;
+
+    public RpcException(String message) {
+        super(message);
+    }
+
+    public RpcException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.leisurexi.rpc.common.exception;
+
+/**
+ * RPC 调用超时，在截止时间之前没有收到响应
+ *
+ * @author: leisurexi
+ * @date: 2020-08-25 2:36 下午
+ */
+public class RpcTimeoutException extends RpcException {
+
+    private static final long serialVersionUID = 4167203315791842960L;
+
+    public RpcTimeoutException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.leisurexi.rpc.common.exception;
+
+/**
+ * 序列化或反序列化失败
+ *
+ * @author: leisurexi
+ * @date: 2020-08-24 5:12 下午
+ */
+public class SerializationException extends RpcException {
+
+    private static final long serialVersionUID = 2785364420930614563L;
+
+    public SerializationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.leisurexi.rpc.common.filter;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 调用过滤器，客户端在发送请求之前、服务端在调用服务方法之前按添加顺序执行，先添加的在最外层。
+ * <p>
+ * 过滤器通过 {@code next.invoke(invocation)} 继续调用，可以在返回的结果上注册回调来观察调用结束，
+ * 例如统计耗时；也可以不调用 next 而直接返回结果，例如鉴权失败或命中缓存
+ *
+ * @author: leisurexi
+ * @date: 2020-08-26 3:08 下午
+ */
+@FunctionalInterface
+public interface RpcFilter {
+
+    /**
+     * 执行过滤逻辑
+     *
+     * @param invocation 调用信息
+     * @param next       下一个环节
+     * @return 调用结果
+     * @throws Exception 调用没有发起时直接抛出
+     */
+    CompletableFuture<Object> invoke(RpcInvocation invocation, RpcInvoker next) throws Exception;
+
+}
@@ -0,0 +1,36 @@
+package com.leisurexi.rpc.common.filter;
+
+import java.util.List;
+
+/**
+ * 过滤器链，在创建服务或启动服务端时构建一次，调用时不再遍历过滤器列表，也不会创建新的对象
+ *
+ * @author: leisurexi
+ * @date: 2020-08-26 3:20 下午
+ */
+public final class RpcFilterChain {
+
+    private RpcFilterChain() {
+    }
+
+    /**
+     * 把过滤器依次包装在末端调用之外
+     *
+     * @param filters  过滤器，按执行顺序排列
+     * @param terminal 末端调用
+     * @return 过滤器链的入口，没有过滤器时返回 null，调用方应直接调用末端，不经过 {@link RpcInvoker}
+     */
+    public static RpcInvoker build(List<RpcFilter> filters, RpcInvoker terminal) {
+        if (filters.isEmpty()) {
+            return null;
+        }
+        RpcInvoker next = terminal;
+        for (int i = filters.size() - 1; i >= 0; i--) {
+            RpcFilter filter = filters.get(i);
+            RpcInvoker invoker = next;
+            next = invocation -> filter.invoke(invocation, invoker);
+        }
+        return next;
+    }
+
+}
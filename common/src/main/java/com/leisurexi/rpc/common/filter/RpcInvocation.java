@@ -0,0 +1,90 @@
+package com.leisurexi.rpc.common.filter;
+
+import com.leisurexi.rpc.common.codec.RpcRequest;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 过滤器看到的一次调用，只在有过滤器时创建
+ *
+ * @author: leisurexi
+ * @date: 2020-08-26 3:15 下午
+ */
+@Getter
+public class RpcInvocation {
+
+    /**
+     * 业务 key，接口名#版本号
+     */
+    private final String serviceKey;
+    /**
+     * 方法 key，按方法名调用时为 null
+     *
+     * @see com.leisurexi.rpc.common.util.ServiceKeyUtils#buildMethodKey(String, String, Class[])
+     */
+    private final String methodKey;
+
+    private final String interfaceName;
+
+    private final String methodName;
+
+    private final Class<?>[] parameterTypes;
+    /**
+     * 实际发送或收到的请求
+     */
+    private final RpcRequest request;
+
+    public RpcInvocation(String serviceKey, String methodKey, String interfaceName, String methodName,
+                         Class<?>[] parameterTypes, RpcRequest request) {
+        this.serviceKey = serviceKey;
+        this.methodKey = methodKey;
+        this.interfaceName = interfaceName;
+        this.methodName = methodName;
+        this.parameterTypes = parameterTypes;
+        this.request = request;
+    }
+
+    public Object[] getArguments() {
+        return request.getParameters();
+    }
+
+    public String getAttachment(String key) {
+        Map<String, String> attachments = request.getAttachments();
+        return attachments == null ? null : attachments.get(key);
+    }
+
+    /**
+     * 设置请求的附加信息，只对本次调用生效。请求中的附加信息可能是上下文的只读快照，这里复制后再修改
+     *
+     * @param key   key
+     * @param value value，为 null 时移除
+     */
+    public void setAttachment(String key, String value) {
+        if (value == null) {
+            removeAttachment(key);
+            return;
+        }
+        Map<String, String> attachments = request.getAttachments();
+        Map<String, String> copy = attachments == null ? new HashMap<>(4) : new HashMap<>(attachments);
+        copy.put(key, value);
+        request.setAttachments(copy);
+    }
+
+    /**
+     * 移除请求的附加信息，只对本次调用生效
+     *
+     * @param key key
+     */
+    public void removeAttachment(String key) {
+        Map<String, String> attachments = request.getAttachments();
+        if (attachments == null || !attachments.containsKey(key)) {
+            return;
+        }
+        Map<String, String> copy = new HashMap<>(attachments);
+        copy.remove(key);
+        request.setAttachments(copy.isEmpty() ? null : copy);
+    }
+
+}
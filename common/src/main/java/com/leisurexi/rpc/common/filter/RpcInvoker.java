@@ -0,0 +1,23 @@
+package com.leisurexi.rpc.common.filter;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 调用过滤器链中的下一个环节，链的末端在客户端是发送请求，在服务端是调用服务方法
+ *
+ * @author: leisurexi
+ * @date: 2020-08-26 3:12 下午
+ */
+@FunctionalInterface
+public interface RpcInvoker {
+
+    /**
+     * 发起调用
+     *
+     * @param invocation 调用信息
+     * @return 调用结果，调用失败时以异常结束
+     * @throws Exception 调用没有发起时直接抛出
+     */
+    CompletableFuture<Object> invoke(RpcInvocation invocation) throws Exception;
+
+}
@@ -25,7 +25,18 @@ public interface Registry extends Initializeable, Destroyable {
      * @param addr       服务地址
      * @param serviceMap 服务Map
      */
-    void register(String addr, Map<String, Object> serviceMap);
+    default void register(String addr, Map<String, Object> serviceMap) {
+        register(addr, serviceMap, ProviderInfo.DEFAULT_WEIGHT);
+    }
+
+    /**
+     * 注册服务提供者，并发布该服务端的权重
+     *
+     * @param addr       服务地址
+     * @param serviceMap 服务Map
+     * @param weight     权重
+     */
+    void register(String addr, Map<String, Object> serviceMap, int weight);
 
     /**
      * 取消注册服务
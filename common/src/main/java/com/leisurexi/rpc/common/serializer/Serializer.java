@@ -1,6 +1,9 @@
 package com.leisurexi.rpc.common.serializer;
 
 import com.leisurexi.rpc.common.serializer.impl.HessianSerializer;
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
 
 /**
  * 序列化基本方法接口
@@ -15,6 +18,11 @@ public interface Serializer {
      */
     Serializer DEFAULT = new HessianSerializer();
 
+    /**
+     * 序列化方式 id，写入协议头中
+     */
+    byte getId();
+
     /**
      * java 对象转换成二进制数组
      */
@@ -25,4 +33,27 @@ public interface Serializer {
      */
     <T> T deserialize(byte[] bytes, Class<T> clazz);
 
+    /**
+     * java 对象直接序列化到 ByteBuf 中，默认实现先序列化成二进制数组再复制，实现类应尽量覆盖以避免复制
+     *
+     * @param obj java 对象
+     * @param out 输出缓冲区
+     */
+    default void serialize(Object obj, ByteBuf out) throws IOException {
+        out.writeBytes(serialize(obj));
+    }
+
+    /**
+     * 直接从 ByteBuf 中读取 length 个字节转换成 java 对象，默认实现先复制到二进制数组，实现类应尽量覆盖以避免复制
+     *
+     * @param in     输入缓冲区
+     * @param length 消息体长度
+     * @param clazz  对象类型
+     */
+    default <T> T deserialize(ByteBuf in, int length, Class<T> clazz) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readBytes(bytes);
+        return deserialize(bytes, clazz);
+    }
+
 }
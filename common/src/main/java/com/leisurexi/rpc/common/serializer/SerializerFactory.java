@@ -0,0 +1,53 @@
+package com.leisurexi.rpc.common.serializer;
+
+import com.leisurexi.rpc.common.serializer.impl.Hessian2Serializer;
+import com.leisurexi.rpc.common.serializer.impl.HessianSerializer;
+import com.leisurexi.rpc.common.serializer.impl.KryoSerializer;
+import com.leisurexi.rpc.common.serializer.impl.ProtostuffSerializer;
+
+/**
+ * 序列化方式工厂，根据协议头中的序列化 id 查找对应的序列化实现，
+ * 服务端据此支持不同客户端使用不同的序列化方式
+ *
+ * @author: leisurexi
+ * @date: 2020-08-24 3:30 下午
+ */
+public final class SerializerFactory {
+
+    private static final Serializer[] SERIALIZERS = new Serializer[Byte.MAX_VALUE + 1];
+
+    static {
+        register(new HessianSerializer());
+        register(new KryoSerializer());
+        register(new ProtostuffSerializer());
+        register(new Hessian2Serializer());
+    }
+
+    private SerializerFactory() {
+    }
+
+    /**
+     * 注册序列化实现，相同 id 的实现会被覆盖，
+     * 例如注册了业务类的 {@link KryoSerializer} 实例
+     *
+     * @param serializer 序列化实现
+     */
+    public static synchronized void register(Serializer serializer) {
+        byte id = serializer.getId();
+        if (id <= 0) {
+            throw new IllegalArgumentException("Serializer id must be positive: " + id);
+        }
+        SERIALIZERS[id] = serializer;
+    }
+
+    /**
+     * 根据序列化 id 获取序列化实现
+     *
+     * @param id 序列化 id
+     * @return 序列化实现，不存在时返回 null
+     */
+    public static Serializer getSerializer(byte id) {
+        return id > 0 ? SERIALIZERS[id] : null;
+    }
+
+}
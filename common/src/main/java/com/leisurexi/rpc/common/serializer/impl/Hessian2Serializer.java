@@ -0,0 +1,176 @@
+package com.leisurexi.rpc.common.serializer.impl;
+
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+import com.caucho.hessian.io.SerializerFactory;
+import com.leisurexi.rpc.common.exception.SerializationException;
+import com.leisurexi.rpc.common.serializer.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * hessian2 序列化实现，编码比 hessian1 更紧凑。
+ * {@link Hessian2Output}、{@link Hessian2Input} 及其内部缓冲区池化复用，每次使用前重置引用和类定义
+ *
+ * @author: leisurexi
+ * @date: 2020-08-24 5:20 下午
+ */
+public class Hessian2Serializer implements Serializer {
+
+    /**
+     * hessian2 序列化 id
+     */
+    public static final byte ID = 4;
+
+    /**
+     * 所有 hessian 流共享，避免每个流各自缓存一份类型对应的序列化器
+     */
+    private final SerializerFactory serializerFactory = new SerializerFactory();
+
+    private final Queue<HessianHolder> pool = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] serialize(Object obj) {
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            serialize(obj, buf);
+            return ByteBufUtil.getBytes(buf);
+        } catch (IOException e) {
+            throw new SerializationException("hessian2 序列化异常", e);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> clazz) {
+        try {
+            return deserialize(Unpooled.wrappedBuffer(bytes), bytes.length, clazz);
+        } catch (IOException e) {
+            throw new SerializationException("hessian2 反序列化异常", e);
+        }
+    }
+
+    @Override
+    public void serialize(Object obj, ByteBuf out) throws IOException {
+        HessianHolder holder = borrow();
+        try {
+            holder.outputStream.buf = out;
+            holder.output.init(holder.outputStream);
+            holder.output.writeObject(obj);
+            holder.output.flushBuffer();
+        } finally {
+            holder.outputStream.buf = null;
+            release(holder);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(ByteBuf in, int length, Class<T> clazz) throws IOException {
+        HessianHolder holder = borrow();
+        try {
+            holder.inputStream.buf = in;
+            holder.inputStream.remaining = length;
+            holder.input.init(holder.inputStream);
+            return (T) holder.input.readObject(clazz);
+        } finally {
+            holder.inputStream.buf = null;
+            release(holder);
+        }
+    }
+
+    private HessianHolder borrow() {
+        HessianHolder holder = pool.poll();
+        return holder != null ? holder : new HessianHolder(serializerFactory);
+    }
+
+    private void release(HessianHolder holder) {
+        pool.offer(holder);
+    }
+
+    private static class HessianHolder {
+
+        private final ByteBufWriter outputStream = new ByteBufWriter();
+
+        private final ByteBufReader inputStream = new ByteBufReader();
+
+        private final Hessian2Output output = new Hessian2Output();
+
+        private final Hessian2Input input = new Hessian2Input();
+
+        HessianHolder(SerializerFactory serializerFactory) {
+            output.setSerializerFactory(serializerFactory);
+            input.setSerializerFactory(serializerFactory);
+        }
+
+    }
+
+    /**
+     * 可复用的 ByteBuf 输出流
+     */
+    private static class ByteBufWriter extends OutputStream {
+
+        private ByteBuf buf;
+
+        @Override
+        public void write(int b) {
+            buf.writeByte(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buf.writeBytes(b, off, len);
+        }
+
+    }
+
+    /**
+     * 可复用的 ByteBuf 输入流，最多读取 remaining 个字节，避免 hessian 预读越过消息体
+     */
+    private static class ByteBufReader extends InputStream {
+
+        private ByteBuf buf;
+
+        private int remaining;
+
+        @Override
+        public int read() {
+            if (remaining <= 0) {
+                return -1;
+            }
+            remaining--;
+            return buf.readUnsignedByte();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = Math.min(len, remaining);
+            buf.readBytes(b, off, n);
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return remaining;
+        }
+
+    }
+
+}
@@ -2,71 +2,69 @@ package com.leisurexi.rpc.common.serializer.impl;
 
 import com.caucho.hessian.io.HessianInput;
 import com.caucho.hessian.io.HessianOutput;
+import com.leisurexi.rpc.common.exception.SerializationException;
 import com.leisurexi.rpc.common.serializer.Serializer;
-import lombok.extern.slf4j.Slf4j;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 /**
- * hessian 序列化实现
+ * hessian 序列化实现，使用 hessian1 编码，更紧凑的编码见 {@link Hessian2Serializer}
  *
  * @author: leisurexi
  * @date: 2020-07-17 11:22 上午
  */
-@Slf4j
 public class HessianSerializer implements Serializer {
 
+    /**
+     * hessian 序列化 id
+     */
+    public static final byte ID = 1;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
     @Override
     public byte[] serialize(Object object) {
-        ByteArrayOutputStream outputStream = null;
-        HessianOutput hessianOutput = null;
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         try {
-            outputStream = new ByteArrayOutputStream();
-            hessianOutput = new HessianOutput(outputStream);
+            HessianOutput hessianOutput = new HessianOutput(outputStream);
             hessianOutput.writeObject(object);
+            hessianOutput.flush();
             return outputStream.toByteArray();
         } catch (IOException e) {
-            log.error("hessian 序列化异常", e);
-        } finally {
-            try {
-                if (outputStream != null) {
-                    outputStream.close();
-                }
-                if (hessianOutput != null) {
-                    hessianOutput.close();
-                }
-            } catch (IOException e) {
-                // ignore
-            }
+            throw new SerializationException("hessian 序列化异常", e);
         }
-        return null;
     }
 
     @Override
     public <T> T deserialize(byte[] data, Class<T> clazz) {
-        ByteArrayInputStream inputStream = null;
-        HessianInput hessianInput = null;
         try {
-            inputStream = new ByteArrayInputStream(data);
-            hessianInput = new HessianInput(inputStream);
+            HessianInput hessianInput = new HessianInput(new ByteArrayInputStream(data));
             return (T) hessianInput.readObject(clazz);
         } catch (IOException e) {
-            log.error("hessian 反序列异常", e);
-        } finally {
-            try {
-                if (inputStream != null) {
-                    inputStream.close();
-                }
-                if (hessianInput != null) {
-                    hessianInput.close();
-                }
-            } catch (IOException e) {
-                // ignore
-            }
+            throw new SerializationException("hessian 反序列化异常", e);
         }
-        return null;
+    }
+
+    @Override
+    public void serialize(Object obj, ByteBuf out) throws IOException {
+        HessianOutput hessianOutput = new HessianOutput(new ByteBufOutputStream(out));
+        hessianOutput.writeObject(obj);
+        hessianOutput.flush();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(ByteBuf in, int length, Class<T> clazz) throws IOException {
+        HessianInput hessianInput = new HessianInput(new ByteBufInputStream(in, length));
+        return (T) hessianInput.readObject(clazz);
     }
 
 }
@@ -0,0 +1,171 @@
+package com.leisurexi.rpc.common.serializer.impl;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.leisurexi.rpc.common.codec.RpcMethodTable;
+import com.leisurexi.rpc.common.codec.RpcRequest;
+import com.leisurexi.rpc.common.codec.RpcResponse;
+import com.leisurexi.rpc.common.serializer.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * kryo 序列化实现
+ * <p>
+ * Kryo、Output、Input 都不是线程安全的，这里把它们放在一起池化复用，不会每次调用都创建新的实例。
+ * 预注册的类只写入一个整数id而不是完整类名，客户端和服务端必须以相同的顺序注册相同的类，
+ * 未注册的类仍然可以序列化，只是会写入完整类名
+ *
+ * @author: leisurexi
+ * @date: 2020-08-24 10:15 上午
+ */
+public class KryoSerializer implements Serializer {
+
+    /**
+     * kryo 序列化 id
+     */
+    public static final byte ID = 2;
+
+    /**
+     * 默认预注册的类
+     */
+    private static final List<Class<?>> DEFAULT_REGISTRATIONS = Collections.unmodifiableList(Arrays.asList(
+            RpcRequest.class, RpcResponse.class, RpcMethodTable.class,
+            Object[].class, Class[].class, ArrayList.class, HashMap.class));
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final int MAX_BUFFER_SIZE = -1;
+
+    /**
+     * 池化的 Output 缓冲区超过该大小时丢弃，避免大消息长期占用内存
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final byte[] EMPTY_BUFFER = new byte[0];
+
+    private final List<Class<?>> registrations;
+
+    private final Queue<KryoHolder> pool = new ConcurrentLinkedQueue<>();
+
+    public KryoSerializer() {
+        this(new Class<?>[0]);
+    }
+
+    /**
+     * @param classes 额外预注册的业务类，例如 DTO
+     */
+    public KryoSerializer(Class<?>... classes) {
+        List<Class<?>> registrations = new ArrayList<>(DEFAULT_REGISTRATIONS);
+        registrations.addAll(Arrays.asList(classes));
+        this.registrations = Collections.unmodifiableList(registrations);
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] serialize(Object obj) {
+        KryoHolder holder = borrow();
+        try {
+            holder.output.clear();
+            holder.kryo.writeClassAndObject(holder.output, obj);
+            return holder.output.toBytes();
+        } finally {
+            release(holder);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> clazz) {
+        KryoHolder holder = borrow();
+        try {
+            holder.arrayInput.setBuffer(bytes);
+            return clazz.cast(holder.kryo.readClassAndObject(holder.arrayInput));
+        } finally {
+            holder.arrayInput.setBuffer(EMPTY_BUFFER);
+            release(holder);
+        }
+    }
+
+    @Override
+    public void serialize(Object obj, ByteBuf out) {
+        KryoHolder holder = borrow();
+        try {
+            holder.output.setOutputStream(new ByteBufOutputStream(out));
+            holder.kryo.writeClassAndObject(holder.output, obj);
+            holder.output.flush();
+        } finally {
+            holder.output.setOutputStream(null);
+            release(holder);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, int length, Class<T> clazz) {
+        KryoHolder holder = borrow();
+        try {
+            holder.input.setInputStream(new ByteBufInputStream(in, length));
+            return clazz.cast(holder.kryo.readClassAndObject(holder.input));
+        } finally {
+            holder.input.setInputStream(null);
+            release(holder);
+        }
+    }
+
+    private KryoHolder borrow() {
+        KryoHolder holder = pool.poll();
+        return holder != null ? holder : new KryoHolder(createKryo());
+    }
+
+    private void release(KryoHolder holder) {
+        if (holder.output.getBuffer().length > MAX_RETAINED_BUFFER_SIZE) {
+            holder.output.setBuffer(new byte[BUFFER_SIZE], MAX_BUFFER_SIZE);
+        }
+        pool.offer(holder);
+    }
+
+    private Kryo createKryo() {
+        Kryo kryo = new Kryo();
+        kryo.setRegistrationRequired(false);
+        // 没有无参构造器的类通过 objenesis 创建实例
+        kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        for (Class<?> clazz : registrations) {
+            kryo.register(clazz);
+        }
+        return kryo;
+    }
+
+    /**
+     * 池化对象，Kryo 和对应的 Output、Input 一起复用
+     */
+    private static class KryoHolder {
+
+        private final Kryo kryo;
+
+        private final Output output = new Output(BUFFER_SIZE, MAX_BUFFER_SIZE);
+
+        private final Input input = new Input(BUFFER_SIZE);
+
+        private final Input arrayInput = new Input();
+
+        KryoHolder(Kryo kryo) {
+            this.kryo = kryo;
+        }
+
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.leisurexi.rpc.common.serializer.impl;
+
+import com.dyuproject.protostuff.LinkedBuffer;
+import com.dyuproject.protostuff.ProtostuffIOUtil;
+import com.dyuproject.protostuff.Schema;
+import com.dyuproject.protostuff.runtime.RuntimeSchema;
+import com.leisurexi.rpc.common.serializer.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * protostuff 序列化实现，每个类的 {@link RuntimeSchema} 只创建一次，{@link LinkedBuffer} 池化复用
+ *
+ * @author: leisurexi
+ * @date: 2020-08-24 3:05 下午
+ */
+public class ProtostuffSerializer implements Serializer {
+
+    /**
+     * protostuff 序列化 id
+     */
+    public static final byte ID = 3;
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final Map<Class<?>, Schema<?>> schemaCache = new ConcurrentHashMap<>();
+
+    private final Queue<LinkedBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] serialize(Object obj) {
+        Schema<Object> schema = getSchema(obj.getClass());
+        LinkedBuffer buffer = borrowBuffer();
+        try {
+            return ProtostuffIOUtil.toByteArray(obj, schema, buffer);
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> clazz) {
+        Schema<T> schema = getSchema(clazz);
+        T message = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(bytes, message, schema);
+        return message;
+    }
+
+    @Override
+    public void serialize(Object obj, ByteBuf out) throws IOException {
+        Schema<Object> schema = getSchema(obj.getClass());
+        LinkedBuffer buffer = borrowBuffer();
+        try {
+            ProtostuffIOUtil.writeTo(new ByteBufOutputStream(out), obj, schema, buffer);
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuf in, int length, Class<T> clazz) throws IOException {
+        Schema<T> schema = getSchema(clazz);
+        T message = schema.newMessage();
+        if (in.hasArray()) {
+            // 堆内缓冲区直接读取底层数组
+            ProtostuffIOUtil.mergeFrom(in.array(), in.arrayOffset() + in.readerIndex(), length, message, schema);
+            in.skipBytes(length);
+            return message;
+        }
+        LinkedBuffer buffer = borrowBuffer();
+        try {
+            ProtostuffIOUtil.mergeFrom(new ByteBufInputStream(in, length), message, schema, buffer);
+        } finally {
+            releaseBuffer(buffer);
+        }
+        return message;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Schema<T> getSchema(Class<?> clazz) {
+        Schema<?> schema = schemaCache.get(clazz);
+        if (schema == null) {
+            schema = schemaCache.computeIfAbsent(clazz, RuntimeSchema::getSchema);
+        }
+        return (Schema<T>) schema;
+    }
+
+    private LinkedBuffer borrowBuffer() {
+        LinkedBuffer buffer = bufferPool.poll();
+        return buffer != null ? buffer : LinkedBuffer.allocate(BUFFER_SIZE);
+    }
+
+    private void releaseBuffer(LinkedBuffer buffer) {
+        buffer.clear();
+        bufferPool.offer(buffer);
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.leisurexi.rpc.common.transport;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 批量 flush 配置
+ *
+ * @author: leisurexi
+ * @date: 2020-08-23 2:05 下午
+ */
+@Getter
+@Builder
+public class BatchFlushConfig {
+
+    /**
+     * 默认配置：同一轮事件循环内的写操作合并为一次 flush
+     */
+    public static final BatchFlushConfig DEFAULT = BatchFlushConfig.builder().build();
+
+    /**
+     * 关闭批量 flush，每条消息 flush 一次
+     */
+    public static final BatchFlushConfig DISABLED = BatchFlushConfig.builder().enabled(false).build();
+
+    /**
+     * 是否开启批量 flush
+     */
+    @Builder.Default
+    private boolean enabled = true;
+
+    /**
+     * 单次 flush 最多合并的消息数，达到后立即 flush
+     */
+    @Builder.Default
+    private int maxMessagesPerFlush = 64;
+
+    /**
+     * 单次 flush 最多合并的字节数，达到后立即 flush
+     */
+    @Builder.Default
+    private int maxBytesPerFlush = 64 * 1024;
+
+    /**
+     * 合并窗口，单位微秒。0 表示在当前事件循环中已提交的任务执行完后 flush
+     */
+    @Builder.Default
+    private long flushWindowMicros = 0;
+
+}
@@ -0,0 +1,144 @@
+package com.leisurexi.rpc.common.transport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量 flush 处理器，把一轮事件循环或一个时间窗口内的多次 flush 合并为一次，减少系统调用。
+ * <p>
+ * 需要放在编码器之前（更靠近 head），这样写出的消息已经是编码后的 {@link ByteBuf}，可以统计字节数。
+ * 读事件处理过程中产生的 flush 会推迟到 channelReadComplete 时统一执行
+ *
+ * @author: leisurexi
+ * @date: 2020-08-23 2:20 下午
+ */
+public class BatchFlushHandler extends ChannelDuplexHandler {
+
+    private final BatchFlushConfig config;
+
+    private final FlushStats stats;
+
+    private final long flushWindowNanos;
+
+    /**
+     * 以下字段只在 channel 所在的 IO 线程中访问
+     */
+    private int pendingMessages;
+
+    private long pendingBytes;
+
+    private boolean readInProgress;
+
+    private boolean flushScheduled;
+
+    private ChannelHandlerContext ctx;
+
+    private final Runnable flushTask = () -> {
+        flushScheduled = false;
+        if (pendingMessages > 0) {
+            flushNow(ctx);
+        }
+    };
+
+    public BatchFlushHandler(BatchFlushConfig config, FlushStats stats) {
+        this.config = config;
+        this.stats = stats;
+        this.flushWindowNanos = TimeUnit.MICROSECONDS.toNanos(config.getFlushWindowMicros());
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        pendingMessages++;
+        if (msg instanceof ByteBuf) {
+            pendingBytes += ((ByteBuf) msg).readableBytes();
+        }
+        stats.recordMessage();
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (!config.isEnabled()
+                || pendingMessages >= config.getMaxMessagesPerFlush()
+                || pendingBytes >= config.getMaxBytesPerFlush()) {
+            flushNow(ctx);
+        } else if (!readInProgress) {
+            scheduleFlush(ctx);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        readInProgress = false;
+        flushIfNeeded(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (!ctx.channel().isWritable()) {
+            // 写缓冲区已满时尽快把数据写到 socket
+            flushIfNeeded(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        flushIfNeeded(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushIfNeeded(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        flushIfNeeded(ctx);
+    }
+
+    private void scheduleFlush(ChannelHandlerContext ctx) {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        if (flushWindowNanos > 0) {
+            ctx.channel().eventLoop().schedule(flushTask, flushWindowNanos, TimeUnit.NANOSECONDS);
+        } else {
+            // 排在当前已提交的写任务之后执行，这些写操作会合并到同一次 flush 中
+            ctx.channel().eventLoop().execute(flushTask);
+        }
+    }
+
+    private void flushIfNeeded(ChannelHandlerContext ctx) {
+        if (pendingMessages > 0) {
+            flushNow(ctx);
+        }
+    }
+
+    private void flushNow(ChannelHandlerContext ctx) {
+        pendingMessages = 0;
+        pendingBytes = 0;
+        stats.recordFlush();
+        ctx.flush();
+    }
+
+}
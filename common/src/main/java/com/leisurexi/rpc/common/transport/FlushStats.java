@@ -0,0 +1,53 @@
+package com.leisurexi.rpc.common.transport;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * flush 统计，用于观察批量 flush 的效果
+ *
+ * @author: leisurexi
+ * @date: 2020-08-23 2:12 下午
+ */
+public class FlushStats {
+
+    private final LongAdder messageCount = new LongAdder();
+
+    private final LongAdder flushCount = new LongAdder();
+
+    void recordMessage() {
+        messageCount.increment();
+    }
+
+    void recordFlush() {
+        flushCount.increment();
+    }
+
+    /**
+     * 写出的消息总数
+     */
+    public long getMessageCount() {
+        return messageCount.sum();
+    }
+
+    /**
+     * flush 总次数
+     */
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    /**
+     * 平均每次 flush 写出的消息数
+     */
+    public double getMessagesPerFlush() {
+        long flushes = flushCount.sum();
+        return flushes == 0 ? 0 : (double) messageCount.sum() / flushes;
+    }
+
+    @Override
+    public String toString() {
+        return "FlushStats{messages=" + getMessageCount() + ", flushes=" + getFlushCount()
+                + ", messagesPerFlush=" + String.format("%.2f", getMessagesPerFlush()) + "}";
+    }
+
+}
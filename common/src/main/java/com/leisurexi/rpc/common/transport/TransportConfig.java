@@ -0,0 +1,75 @@
+package com.leisurexi.rpc.common.transport;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 网络传输配置
+ *
+ * @author: leisurexi
+ * @date: 2020-08-26 3:02 下午
+ */
+@Getter
+@Builder
+public class TransportConfig {
+
+    /**
+     * 默认配置：自动选择传输实现
+     */
+    public static final TransportConfig DEFAULT = TransportConfig.builder().build();
+
+    /**
+     * 指定的传输实现，为 null 或不可用时按 {@link TransportType#select(TransportConfig)} 自动选择
+     */
+    private TransportType transportType;
+
+    /**
+     * 自动选择时是否优先使用 io_uring
+     */
+    @Builder.Default
+    private boolean ioUringEnabled = false;
+
+    /**
+     * 服务端 accept 线程数，开启 {@link #reusePort} 时每个线程绑定一个监听套接字
+     */
+    @Builder.Default
+    private int bossThreads = 1;
+
+    /**
+     * IO 线程数，0 表示使用 Netty 默认值（CPU 核数 * 2）
+     */
+    @Builder.Default
+    private int workerThreads = 0;
+
+    /**
+     * 是否开启 TCP_NODELAY
+     */
+    @Builder.Default
+    private boolean tcpNoDelay = true;
+
+    /**
+     * 服务端是否开启 SO_REUSEPORT，在同一端口上绑定 {@link #bossThreads} 个监听套接字，
+     * 仅 epoll 和 io_uring 支持，其他传输实现忽略该配置
+     */
+    @Builder.Default
+    private boolean reusePort = false;
+
+    /**
+     * 服务端 accept 队列长度
+     */
+    @Builder.Default
+    private int backlog = 1024;
+
+    /**
+     * SO_SNDBUF，0 表示使用系统默认值
+     */
+    @Builder.Default
+    private int sendBufferSize = 0;
+
+    /**
+     * SO_RCVBUF，0 表示使用系统默认值
+     */
+    @Builder.Default
+    private int receiveBufferSize = 0;
+
+}
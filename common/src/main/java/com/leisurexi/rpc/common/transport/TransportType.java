@@ -0,0 +1,243 @@
+package com.leisurexi.rpc.common.transport;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.kqueue.KQueue;
+import io.netty.channel.kqueue.KQueueEventLoopGroup;
+import io.netty.channel.kqueue.KQueueServerSocketChannel;
+import io.netty.channel.kqueue.KQueueSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 网络传输实现，优先使用本地传输，不可用时回退到 NIO
+ *
+ * @author: leisurexi
+ * @date: 2020-08-26 3:10 下午
+ */
+@Slf4j
+public enum TransportType {
+
+    /**
+     * Linux io_uring，需要额外引入 netty-incubator-transport-native-io_uring 及对应版本的 netty，通过反射加载
+     */
+    IO_URING {
+        @Override
+        public boolean isAvailable() {
+            return IoUringHolder.AVAILABLE;
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, String poolName) {
+            try {
+                return (EventLoopGroup) IoUringHolder.EVENT_LOOP_GROUP_CONSTRUCTOR.newInstance(threads, threadFactory(poolName));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Can not create io_uring event loop group", e);
+            }
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return IoUringHolder.SERVER_CHANNEL_CLASS;
+        }
+
+        @Override
+        public Class<? extends Channel> getChannelClass() {
+            return IoUringHolder.CHANNEL_CLASS;
+        }
+
+        @Override
+        public boolean isReusePortSupported() {
+            return true;
+        }
+    },
+
+    /**
+     * Linux epoll
+     */
+    EPOLL {
+        @Override
+        public boolean isAvailable() {
+            return Epoll.isAvailable();
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, String poolName) {
+            return new EpollEventLoopGroup(threads, threadFactory(poolName));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends Channel> getChannelClass() {
+            return EpollSocketChannel.class;
+        }
+
+        @Override
+        public boolean isReusePortSupported() {
+            return true;
+        }
+    },
+
+    /**
+     * macOS / BSD kqueue
+     */
+    KQUEUE {
+        @Override
+        public boolean isAvailable() {
+            return KQueue.isAvailable();
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, String poolName) {
+            return new KQueueEventLoopGroup(threads, threadFactory(poolName));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return KQueueServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends Channel> getChannelClass() {
+            return KQueueSocketChannel.class;
+        }
+    },
+
+    /**
+     * JDK NIO，所有平台都可用
+     */
+    NIO {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, String poolName) {
+            return new NioEventLoopGroup(threads, threadFactory(poolName));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends Channel> getChannelClass() {
+            return NioSocketChannel.class;
+        }
+    };
+
+    /**
+     * 当前平台是否可用
+     */
+    public abstract boolean isAvailable();
+
+    /**
+     * 创建事件循环组
+     *
+     * @param threads  线程数，0 表示使用 Netty 默认值（CPU 核数 * 2）
+     * @param poolName 线程名前缀
+     */
+    public abstract EventLoopGroup newEventLoopGroup(int threads, String poolName);
+
+    public abstract Class<? extends ServerChannel> getServerChannelClass();
+
+    public abstract Class<? extends Channel> getChannelClass();
+
+    /**
+     * 是否支持通过 SO_REUSEPORT 在同一端口上绑定多个监听套接字，由内核在它们之间分配新连接
+     */
+    public boolean isReusePortSupported() {
+        return false;
+    }
+
+    /**
+     * 根据配置选择传输实现：指定的实现不可用时自动选择，
+     * 自动选择的顺序为 io_uring（需要开启）、epoll、kqueue、NIO
+     *
+     * @param config 传输配置
+     * @return 传输实现
+     */
+    public static TransportType select(TransportConfig config) {
+        TransportType preferred = config.getTransportType();
+        if (preferred != null) {
+            if (preferred.isAvailable()) {
+                return preferred;
+            }
+            log.warn("Transport [{}] is not available, fall back to automatic selection", preferred);
+        }
+        if (config.isIoUringEnabled() && IO_URING.isAvailable()) {
+            return IO_URING;
+        }
+        if (EPOLL.isAvailable()) {
+            return EPOLL;
+        }
+        if (KQUEUE.isAvailable()) {
+            return KQUEUE;
+        }
+        return NIO;
+    }
+
+    private static ThreadFactory threadFactory(String poolName) {
+        return new DefaultThreadFactory(poolName);
+    }
+
+    /**
+     * io_uring 相关类延迟加载，未引入依赖时不可用
+     */
+    private static class IoUringHolder {
+
+        private static final String PACKAGE = "io.netty.incubator.channel.uring.";
+
+        private static final boolean AVAILABLE;
+
+        private static final Constructor<?> EVENT_LOOP_GROUP_CONSTRUCTOR;
+
+        private static final Class<? extends ServerChannel> SERVER_CHANNEL_CLASS;
+
+        private static final Class<? extends Channel> CHANNEL_CLASS;
+
+        static {
+            boolean available = false;
+            Constructor<?> constructor = null;
+            Class<? extends ServerChannel> serverChannelClass = null;
+            Class<? extends Channel> channelClass = null;
+            try {
+                ClassLoader classLoader = TransportType.class.getClassLoader();
+                Class<?> ioUring = Class.forName(PACKAGE + "IOUring", true, classLoader);
+                available = (Boolean) ioUring.getMethod("isAvailable").invoke(null);
+                constructor = Class.forName(PACKAGE + "IOUringEventLoopGroup", false, classLoader)
+                        .getConstructor(int.class, ThreadFactory.class);
+                serverChannelClass = Class.forName(PACKAGE + "IOUringServerSocketChannel", false, classLoader)
+                        .asSubclass(ServerChannel.class);
+                channelClass = Class.forName(PACKAGE + "IOUringSocketChannel", false, classLoader)
+                        .asSubclass(Channel.class);
+            } catch (Throwable e) {
+                available = false;
+                log.debug("io_uring transport is not available: {}", e.toString());
+            }
+            AVAILABLE = available;
+            EVENT_LOOP_GROUP_CONSTRUCTOR = constructor;
+            SERVER_CHANNEL_CLASS = serverChannelClass;
+            CHANNEL_CLASS = channelClass;
+        }
+
+    }
+
+}
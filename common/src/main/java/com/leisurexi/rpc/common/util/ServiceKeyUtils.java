@@ -26,4 +26,24 @@ public class ServiceKeyUtils {
         return serviceKey;
     }
 
+    /**
+     * 创建方法 key，格式为 serviceKey.methodName(paramType1,paramType2)
+     *
+     * @param serviceKey     业务 key
+     * @param methodName     方法名称
+     * @param parameterTypes 参数类型数组
+     */
+    public static String buildMethodKey(String serviceKey, String methodName, Class<?>[] parameterTypes) {
+        StringBuilder methodKey = new StringBuilder(serviceKey).append('.').append(methodName).append('(');
+        if (parameterTypes != null) {
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (i > 0) {
+                    methodKey.append(',');
+                }
+                methodKey.append(parameterTypes[i].getName());
+            }
+        }
+        return methodKey.append(')').toString();
+    }
+
 }
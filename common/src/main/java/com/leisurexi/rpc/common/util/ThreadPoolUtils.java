@@ -1,6 +1,10 @@
 package com.leisurexi.rpc.common.util;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -10,6 +14,11 @@ import java.util.concurrent.TimeUnit;
  */
 public class ThreadPoolUtils {
 
+    /**
+     * JDK 21+ 提供的 Executors#newVirtualThreadPerTaskExecutor，低版本 JDK 中为 null
+     */
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadFactoryMethod();
+
     /**
      * 创建线程池
      *
@@ -18,9 +27,55 @@ public class ThreadPoolUtils {
      * @param maxPoolSize  最大线程数
      */
     public static ThreadPoolExecutor createThreadPool(final String threadName, int corePoolSize, int maxPoolSize) {
+        return createThreadPool(threadName, corePoolSize, maxPoolSize, 1000, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 创建线程池
+     *
+     * @param threadName        线程名称
+     * @param corePoolSize      核心线程数
+     * @param maxPoolSize       最大线程数
+     * @param queueCapacity     等待队列长度
+     * @param rejectedExecution 拒绝策略
+     */
+    public static ThreadPoolExecutor createThreadPool(final String threadName, int corePoolSize, int maxPoolSize,
+                                                      int queueCapacity, RejectedExecutionHandler rejectedExecution) {
         ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(corePoolSize, maxPoolSize, 60L, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(1000), r -> new Thread(r, "rpc-" + threadName + "-" + r.hashCode()), new ThreadPoolExecutor.AbortPolicy());
+                new LinkedBlockingQueue<>(queueCapacity), r -> new Thread(r, "rpc-" + threadName + "-" + r.hashCode()), rejectedExecution);
         return threadPoolExecutor;
     }
 
+    /**
+     * 当前 JVM 是否支持虚拟线程
+     */
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的线程池
+     *
+     * @throws UnsupportedOperationException 当前 JVM 不支持虚拟线程
+     */
+    public static ExecutorService createVirtualThreadExecutor() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Virtual threads require JDK 21 or later, current: "
+                    + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can not create virtual thread executor", e);
+        }
+    }
+
+    private static Method findVirtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
 }
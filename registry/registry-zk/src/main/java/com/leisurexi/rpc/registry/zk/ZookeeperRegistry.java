@@ -107,7 +107,7 @@ public class ZookeeperRegistry implements Registry {
     }
 
     @Override
-    public void register(String addr, Map<String, Object> serviceMap) {
+    public void register(String addr, Map<String, Object> serviceMap, int weight) {
         if (!CollectionUtils.isEmpty(serviceMap)) {
             serviceMap.forEach((serviceKey, obj) -> {
                 try {
@@ -124,6 +124,7 @@ public class ZookeeperRegistry implements Registry {
                             .serviceName(serviceInfo[0])
                             .version(serviceInfo[1])
                             .startTime(System.currentTimeMillis())
+                            .weight(weight)
                             .build();
                     zkClient.create().creatingParentContainersIfNeeded()
                             .withMode(CreateMode.EPHEMERAL)
@@ -1,23 +1,35 @@
 package com.leisurexi.rpc.server.core;
 
+import com.leisurexi.rpc.common.client.ProviderInfo;
 import com.leisurexi.rpc.common.codec.*;
+import com.leisurexi.rpc.common.filter.RpcFilter;
+import com.leisurexi.rpc.common.filter.RpcInvoker;
 import com.leisurexi.rpc.common.registry.Registry;
 import com.leisurexi.rpc.common.serializer.Serializer;
+import com.leisurexi.rpc.common.transport.BatchFlushConfig;
+import com.leisurexi.rpc.common.transport.BatchFlushHandler;
+import com.leisurexi.rpc.common.transport.FlushStats;
+import com.leisurexi.rpc.common.transport.TransportConfig;
+import com.leisurexi.rpc.common.transport.TransportType;
 import com.leisurexi.rpc.common.util.ServiceKeyUtils;
 import com.leisurexi.rpc.registry.zk.ZookeeperRegistry;
+import com.leisurexi.rpc.server.executor.DispatchExecutor;
+import com.leisurexi.rpc.server.executor.impl.BoundedDispatchExecutor;
+import com.leisurexi.rpc.server.executor.impl.VirtualThreadDispatchExecutor;
+import com.leisurexi.rpc.server.invoker.InvokerType;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.channel.unix.UnixChannelOption;
 import io.netty.handler.timeout.IdleStateHandler;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -49,59 +61,265 @@ public class NettyServer implements Server {
      */
     private Map<String, Object> serviceMap;
 
+    /**
+     * 服务方法注册表
+     */
+    private final ServiceMethodRegistry methodRegistry;
+
+    /**
+     * 业务请求分发执行器，所有连接共享，未设置时启动时创建默认的有界线程池
+     */
+    private volatile DispatchExecutor dispatchExecutor;
+
+    /**
+     * 分发执行器是否由服务端创建，只有服务端创建的执行器在停止时关闭，外部传入的可能与其他组件共享
+     */
+    private volatile boolean dispatchExecutorOwned;
+
+    /**
+     * 序列化方式
+     */
+    private volatile Serializer serializer = Serializer.DEFAULT;
+
+    /**
+     * 压缩阈值，响应按请求协商的压缩方式压缩
+     */
+    private volatile int compressThreshold = RpcProtocol.DEFAULT_COMPRESS_THRESHOLD;
+
+    /**
+     * 请求消息体长度上限
+     */
+    private volatile int maxFrameLength = RpcProtocol.DEFAULT_MAX_FRAME_LENGTH;
+
+    /**
+     * 批量 flush 配置
+     */
+    private volatile BatchFlushConfig batchFlushConfig = BatchFlushConfig.DEFAULT;
+
+    /**
+     * 网络传输配置
+     */
+    private volatile TransportConfig transportConfig = TransportConfig.DEFAULT;
+
+    /**
+     * 发布到注册中心的权重
+     */
+    private volatile int weight = ProviderInfo.DEFAULT_WEIGHT;
+
+    /**
+     * 所有连接的 flush 统计
+     */
+    private final FlushStats flushStats = new FlushStats();
+
+    /**
+     * 服务端过滤器，按添加顺序执行
+     */
+    private final List<RpcFilter> filters = new ArrayList<>();
+
     public NettyServer(String serverAddress, String registryAddress) {
         this.serviceMap = new HashMap<>();
+        this.methodRegistry = new ServiceMethodRegistry();
         this.serverAddress = serverAddress;
         this.registry = new ZookeeperRegistry(registryAddress);
         this.registry.init();
         this.registry.start();
     }
 
+    /**
+     * 设置服务方法调用方式，需要在添加服务之前调用
+     *
+     * @param invokerType 调用方式
+     */
+    public void setInvokerType(InvokerType invokerType) {
+        methodRegistry.setInvokerType(invokerType);
+    }
+
+    /**
+     * 设置业务请求分发执行器，需要在启动之前调用。传入的执行器由调用方负责关闭，服务端停止时不会关闭
+     *
+     * @param dispatchExecutor 分发执行器
+     * @see com.leisurexi.rpc.server.executor.impl.BoundedDispatchExecutor
+     * @see com.leisurexi.rpc.server.executor.impl.VirtualThreadDispatchExecutor
+     * @see com.leisurexi.rpc.server.executor.impl.DirectDispatchExecutor
+     */
+    public void setDispatchExecutor(DispatchExecutor dispatchExecutor) {
+        this.dispatchExecutor = dispatchExecutor;
+        this.dispatchExecutorOwned = false;
+    }
+
+    /**
+     * 开启虚拟线程模式，每个请求在独立的虚拟线程中执行，需要 JDK 21 及以上版本，需要在启动之前调用。
+     * 与 {@link #setDispatchExecutor(DispatchExecutor)} 以后调用的为准，关闭时只撤销本方法设置的虚拟线程执行器
+     *
+     * @param enabled 是否开启
+     */
+    public void setVirtualThreadEnabled(boolean enabled) {
+        if (enabled) {
+            this.dispatchExecutor = new VirtualThreadDispatchExecutor();
+            this.dispatchExecutorOwned = true;
+        } else if (dispatchExecutor instanceof VirtualThreadDispatchExecutor) {
+            this.dispatchExecutor = null;
+            this.dispatchExecutorOwned = false;
+        }
+    }
+
+    /**
+     * 获取业务请求分发执行器，可用于采集队列长度、活跃线程数、拒绝数等指标
+     */
+    public DispatchExecutor getDispatchExecutor() {
+        return dispatchExecutor;
+    }
+
+    /**
+     * 设置序列化方式，需要在启动之前调用
+     *
+     * @param serializer 序列化方式
+     */
+    public void setSerializer(Serializer serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * 设置压缩阈值，序列化后小于该字节数的响应不压缩，需要在启动之前调用
+     *
+     * @param compressThreshold 压缩阈值
+     */
+    public void setCompressThreshold(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    /**
+     * 设置请求消息体长度上限，超过上限的请求不会被读入内存，直接回复错误码为
+     * {@link com.leisurexi.rpc.common.codec.RpcErrorCode#FRAME_TOO_LONG} 的错误响应，需要在启动之前调用
+     *
+     * @param maxFrameLength 消息体长度上限
+     */
+    public void setMaxFrameLength(int maxFrameLength) {
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    /**
+     * 设置批量 flush 配置，需要在启动之前调用
+     *
+     * @param batchFlushConfig 批量 flush 配置
+     */
+    public void setBatchFlushConfig(BatchFlushConfig batchFlushConfig) {
+        this.batchFlushConfig = batchFlushConfig;
+    }
+
+    /**
+     * 设置网络传输配置，包括传输实现、线程数和套接字参数，需要在启动之前调用
+     *
+     * @param transportConfig 网络传输配置
+     */
+    public void setTransportConfig(TransportConfig transportConfig) {
+        this.transportConfig = transportConfig;
+    }
+
+    /**
+     * 设置发布到注册中心的权重，客户端的加权负载均衡按权重分配流量，需要在启动之前调用
+     *
+     * @param weight 权重，必须大于 0
+     */
+    public void setWeight(int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive: " + weight);
+        }
+        this.weight = weight;
+    }
+
+    /**
+     * 添加服务端过滤器，按添加顺序执行，需要在启动之前调用
+     *
+     * @param filter 过滤器
+     */
+    public void addFilter(RpcFilter filter) {
+        filters.add(filter);
+    }
+
+    /**
+     * 获取 flush 统计，可用于观察平均每次 flush 写出的响应数
+     */
+    public FlushStats getFlushStats() {
+        return flushStats;
+    }
+
     /**
      * 添加服务
      *
      * @param interfaceName 接口名称
      * @param version       版本号
      * @param serviceBean   bean 实例
+     * @throws IllegalArgumentException 接口无法加载，或 bean 没有实现该接口
      */
     public void addService(String interfaceName, String version, Object serviceBean) {
         log.info("Add service, interface: [{}]，version: [{}]，bean: [{}]", interfaceName, version, serviceBean);
         String serviceKey = ServiceKeyUtils.buildServiceKey(interfaceName, version);
+        // 先注册方法，接口无法加载时直接失败，不会把无法调用的服务发布到注册中心
+        methodRegistry.register(serviceKey, interfaceName, serviceBean);
         serviceMap.put(serviceKey, serviceBean);
     }
 
     @Override
     public synchronized void start() {
         if (executorService == null) {
+            if (dispatchExecutor == null) {
+                dispatchExecutor = new BoundedDispatchExecutor();
+                dispatchExecutorOwned = true;
+            }
+            DispatchExecutor executor = dispatchExecutor;
+            boolean ownsExecutor = dispatchExecutorOwned;
+            // 过滤器链只在启动时构建一次，所有连接共享
+            RpcInvoker filterChain = RpcServerHandler.buildFilterChain(new ArrayList<>(filters));
             executorService = Executors.newSingleThreadExecutor();
             executorService.execute(() -> {
-                EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-                EventLoopGroup workerGroup = new NioEventLoopGroup();
+                TransportConfig config = transportConfig;
+                TransportType transportType = TransportType.select(config);
+                // 开启 SO_REUSEPORT 时每个 accept 线程绑定一个监听套接字
+                boolean reusePort = config.isReusePort() && transportType.isReusePortSupported();
+                int acceptors = reusePort ? Math.max(1, config.getBossThreads()) : 1;
+                EventLoopGroup bossGroup = transportType.newEventLoopGroup(acceptors, "rpc-server-boss");
+                EventLoopGroup workerGroup = transportType.newEventLoopGroup(config.getWorkerThreads(), "rpc-server-worker");
                 try {
                     ServerBootstrap bootstrap = new ServerBootstrap();
                     bootstrap.group(bossGroup, workerGroup)
-                            .channel(NioServerSocketChannel.class)
-                            .option(ChannelOption.SO_BACKLOG, 1024)
+                            .channel(transportType.getServerChannelClass())
+                            .option(ChannelOption.SO_BACKLOG, config.getBacklog())
                             .childOption(ChannelOption.SO_KEEPALIVE, true)
-                            .childHandler(new ChannelInitializer<SocketChannel>() {
-                                @Override
-                                protected void initChannel(SocketChannel socketChannel) throws Exception {
-                                    Serializer serializer = Serializer.DEFAULT;
-                                    socketChannel.pipeline().addLast(new IdleStateHandler(0, 0, HeartBeat.HEART_BEAT_TIMEOUT, TimeUnit.SECONDS))
-                                            .addLast(new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 0))
-                                            .addLast(new RpcDecoder(RpcRequest.class, serializer))
-                                            .addLast(new RpcEncoder(RpcResponse.class, serializer))
-                                            .addLast(new RpcServerHandler(serviceMap));
-                                }
-                            });
+                            .childOption(ChannelOption.TCP_NODELAY, config.isTcpNoDelay());
+                    if (reusePort) {
+                        bootstrap.option(UnixChannelOption.SO_REUSEPORT, true);
+                    }
+                    if (config.getSendBufferSize() > 0) {
+                        bootstrap.childOption(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+                    }
+                    if (config.getReceiveBufferSize() > 0) {
+                        // 接收缓冲区需要在监听套接字上设置，才能在建立连接时参与窗口协商
+                        bootstrap.option(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+                    }
+                    bootstrap.childHandler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel socketChannel) throws Exception {
+                            socketChannel.pipeline().addLast(new IdleStateHandler(0, 0, HeartBeat.HEART_BEAT_TIMEOUT, TimeUnit.SECONDS))
+                                    .addLast(new BatchFlushHandler(batchFlushConfig, flushStats))
+                                    .addLast(new RpcDecoder(serializer, maxFrameLength))
+                                    .addLast(new RpcEncoder(serializer, compressThreshold))
+                                    .addLast(new RpcServerHandler(methodRegistry, executor, filterChain));
+                        }
+                    });
                     String[] inetAddress = serverAddress.split(":");
                     String host = inetAddress[0];
                     int port = Integer.parseInt(inetAddress[1]);
-                    ChannelFuture future = bootstrap.bind(host, port).sync();
+                    List<ChannelFuture> futures = new ArrayList<>(acceptors);
+                    for (int i = 0; i < acceptors; i++) {
+                        futures.add(bootstrap.bind(host, port).sync());
+                    }
                     // 向注册中心注册
-                    registry.register(serverAddress, serviceMap);
-                    log.info("Server started on port {}", port);
-                    future.channel().closeFuture().sync();
+                    registry.register(serverAddress, serviceMap, weight);
+                    log.info("Server started on port {}, transport: {}, acceptors: {}", port, transportType, acceptors);
+                    for (ChannelFuture future : futures) {
+                        future.channel().closeFuture().sync();
+                    }
                 } catch (Exception e) {
                     if (e instanceof InterruptedException) {
                         log.error("Rpc server remoting server stop.");
@@ -111,6 +329,9 @@ public class NettyServer implements Server {
                 } finally {
                     bossGroup.shutdownGracefully();
                     workerGroup.shutdownGracefully();
+                    if (ownsExecutor) {
+                        executor.shutdown();
+                    }
                     // 取消注册
                     registry.unRegister(serverAddress, serviceMap);
                 }
@@ -120,10 +341,13 @@ public class NettyServer implements Server {
         }
     }
 
+    /**
+     * 停止服务端，中断等待监听套接字关闭的启动线程，由其关闭线程组、分发执行器并取消注册
+     */
     @Override
     public void stop() {
         if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdown();
+            executorService.shutdownNow();
         }
     }
 
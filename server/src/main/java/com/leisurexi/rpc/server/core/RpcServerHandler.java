@@ -2,18 +2,26 @@ package com.leisurexi.rpc.server.core;
 
 import com.leisurexi.rpc.common.codec.HeartBeat;
 import com.leisurexi.rpc.common.codec.RpcRequest;
+import com.leisurexi.rpc.common.codec.RpcErrorCode;
 import com.leisurexi.rpc.common.codec.RpcResponse;
+import com.leisurexi.rpc.common.context.RpcContext;
+import com.leisurexi.rpc.common.filter.RpcFilter;
+import com.leisurexi.rpc.common.filter.RpcFilterChain;
+import com.leisurexi.rpc.common.filter.RpcInvoker;
 import com.leisurexi.rpc.common.util.ServiceKeyUtils;
-import com.leisurexi.rpc.common.util.ThreadPoolUtils;
+import com.leisurexi.rpc.server.executor.DispatchExecutor;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.timeout.IdleStateEvent;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cglib.reflect.FastClass;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author: leisurexi
@@ -23,65 +31,177 @@ import java.util.concurrent.ThreadPoolExecutor;
 public class RpcServerHandler extends SimpleChannelInboundHandler<RpcRequest> {
 
     /**
-     * 业务线程池
+     * 业务线程池，所有连接共享
      */
-    private final ThreadPoolExecutor serverHandlerPool;
+    private final DispatchExecutor dispatchExecutor;
 
-    private final Map<String, Object> handlerMap;
+    private final ServiceMethodRegistry methodRegistry;
 
-    public RpcServerHandler(Map<String, Object> handlerMap) {
-        this.serverHandlerPool = ThreadPoolUtils.createThreadPool(NettyServer.class.getSimpleName(), 10, 20);
-        this.handlerMap = handlerMap;
+    /**
+     * 过滤器链，没有过滤器时为 null，直接调用服务方法
+     */
+    private final RpcInvoker filterChain;
+
+    /**
+     * 过滤器链的末端，调用已经定位到的服务方法，服务方法抛出的异常作为调用结果返回，过滤器可以观察到
+     */
+    private static final RpcInvoker SERVICE_METHOD_INVOKER = invocation -> {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        try {
+            future.complete(((ServiceInvocation) invocation).getServiceMethod().getInvoker().invoke(invocation.getArguments()));
+        } catch (Throwable throwable) {
+            future.completeExceptionally(throwable);
+        }
+        return future;
+    };
+
+    public RpcServerHandler(ServiceMethodRegistry methodRegistry, DispatchExecutor dispatchExecutor) {
+        this(methodRegistry, dispatchExecutor, null);
+    }
+
+    /**
+     * 构建以调用服务方法为末端的过滤器链
+     *
+     * @param filters 过滤器，按执行顺序排列
+     * @return 过滤器链，没有过滤器时返回 null
+     */
+    public static RpcInvoker buildFilterChain(List<RpcFilter> filters) {
+        return RpcFilterChain.build(filters, SERVICE_METHOD_INVOKER);
+    }
+
+    public RpcServerHandler(ServiceMethodRegistry methodRegistry, DispatchExecutor dispatchExecutor, RpcInvoker filterChain) {
+        this.methodRegistry = methodRegistry;
+        this.dispatchExecutor = dispatchExecutor;
+        this.filterChain = filterChain;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        // 连接建立后下发方法id表，之后客户端的请求只需携带方法id
+        ctx.writeAndFlush(methodRegistry.getMethodTable());
+        super.channelActive(ctx);
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, RpcRequest request) throws Exception {
-        if (HeartBeat.HEART_BEAT_ID.equalsIgnoreCase(request.getRequestId())) {
+        if (request.getRequestId() == HeartBeat.HEART_BEAT_ID) {
             log.info("Server receive heart-beat-msg.");
             return;
         }
+        // 截止时间从收到请求开始计算，包含在业务线程池中排队的时间
+        long deadlineNanos = request.getTimeout() > 0
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(request.getTimeout()) : 0;
         // 因为 Netty4 handler 的处理在IO线程中，如果 handler 中有耗时操作，会让IO线程等待，影响性能
         // 所以这里放入线程池处理
-        serverHandlerPool.execute(() -> {
-            log.info("Receive request [{}]", request.getRequestId());
-            RpcResponse response = new RpcResponse();
-            try {
-                response.setRequestId(request.getRequestId());
-                Object result = handle(request);
-                response.setResult(result);
-            } catch (Throwable throwable) {
-                response.setError(throwable.toString());
-                log.error("RPC Server handle request error", throwable);
-            }
-            ctx.writeAndFlush(response).addListener(future -> {
-                if (future.isSuccess()) {
-                    log.info("Send response for request {}", request.getRequestId());
-                } else {
-                    log.error("Send response error", future.cause());
+        try {
+            dispatchExecutor.execute(() -> {
+                log.info("Receive request [{}]", request.getRequestId());
+                if (deadlineNanos != 0 && System.nanoTime() - deadlineNanos >= 0) {
+                    // 客户端已经不再等待，不再调用服务也不写回响应
+                    log.warn("Drop expired request [{}], timeout: {}ms", request.getRequestId(), request.getTimeout());
+                    return;
+                }
+                RpcContext context = RpcContext.getContext();
+                try {
+                    // 服务实现中发起的嵌套调用继承截止时间和附加信息
+                    if (deadlineNanos != 0) {
+                        context.setDeadlineNanos(deadlineNanos);
+                    }
+                    context.setAttachments(request.getAttachments());
+                    if (filterChain == null) {
+                        Object result = null;
+                        Throwable cause = null;
+                        try {
+                            result = handle(request);
+                        } catch (Throwable throwable) {
+                            cause = throwable;
+                        }
+                        writeResponse(ctx, request, result, cause, context.getResponseAttachments());
+                    } else {
+                        invokeFilterChain(ctx, request, context);
+                    }
+                } finally {
+                    context.clear();
                 }
             });
-        });
+        } catch (RejectedExecutionException e) {
+            log.warn("Reject request [{}]: {}", request.getRequestId(), e.getMessage());
+            ctx.writeAndFlush(RpcResponse.error(request.getRequestId(), RpcErrorCode.SERVER_BUSY, e.toString()));
+        }
+    }
 
+    /**
+     * 经过过滤器链调用服务方法，过滤器异步结束调用时在结束后写回响应，响应的附加信息取同步执行部分设置的
+     */
+    private void invokeFilterChain(ChannelHandlerContext ctx, RpcRequest request, RpcContext context) {
+        CompletableFuture<Object> future;
+        try {
+            ServiceMethodRegistry.ServiceMethod method = findMethod(request);
+            future = method == null ? CompletableFuture.completedFuture(null)
+                    : filterChain.invoke(new ServiceInvocation(method, request));
+        } catch (Throwable throwable) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(throwable);
+        }
+        Map<String, String> responseAttachments = context.getResponseAttachments();
+        future.whenComplete((result, cause) -> writeResponse(ctx, request, result,
+                cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause,
+                responseAttachments));
+    }
+
+    private void writeResponse(ChannelHandlerContext ctx, RpcRequest request, Object result, Throwable cause,
+                               Map<String, String> attachments) {
+        RpcResponse response = new RpcResponse();
+        response.setRequestId(request.getRequestId());
+        response.setCompression(request.getCompression());
+        response.setAttachments(attachments);
+        if (cause == null) {
+            response.setResult(result);
+        } else {
+            response.setErrorCode(RpcErrorCode.SERVICE_ERROR);
+            response.setError(cause.toString());
+            log.error("RPC Server handle request error", cause);
+        }
+        ctx.writeAndFlush(response).addListener(future -> {
+            if (future.isSuccess()) {
+                log.info("Send response for request {}", request.getRequestId());
+            } else {
+                log.error("Send response error", future.cause());
+            }
+        });
     }
 
     private Object handle(RpcRequest request) throws Throwable {
-        String className = request.getClassName();
-        String version = request.getVersion();
-        String serviceKey = ServiceKeyUtils.buildServiceKey(className, version);
-        Object serviceBean = handlerMap.get(serviceKey);
-        if (serviceBean == null) {
-            log.error("Can not find service implement with interface name: {} and version: {}", className, version);
+        ServiceMethodRegistry.ServiceMethod method = findMethod(request);
+        if (method == null) {
             return null;
         }
-        Class<?> serviceClass = serviceBean.getClass();
-        String methodName = request.getMethodName();
-        Class<?>[] parameterTypes = request.getParameterTypes();
-        Object[] parameters = request.getParameters();
-        log.info("service class: [{}], method name: [{}], parameter types: {}, parameters: {}", serviceClass.getName(), methodName, Arrays.toString(parameterTypes), Arrays.toString(parameters));
-        // Cglib，反射调用方法
-        FastClass fastClass = FastClass.create(serviceClass);
-        int methodIndex = fastClass.getIndex(methodName, parameterTypes);
-        return fastClass.invoke(methodIndex, serviceBean, parameters);
+        return method.getInvoker().invoke(request.getParameters());
+    }
+
+    private ServiceMethodRegistry.ServiceMethod findMethod(RpcRequest request) {
+        ServiceMethodRegistry.ServiceMethod method;
+        if (request.getMethodId() > 0) {
+            method = methodRegistry.getMethod(request.getMethodId());
+            if (method == null) {
+                log.error("Can not find service method with id: {}", request.getMethodId());
+                return null;
+            }
+        } else {
+            String className = request.getClassName();
+            String version = request.getVersion();
+            String serviceKey = ServiceKeyUtils.buildServiceKey(className, version);
+            method = methodRegistry.getMethod(ServiceKeyUtils.buildMethodKey(serviceKey, request.getMethodName(), request.getParameterTypes()));
+            if (method == null) {
+                log.error("Can not find service implement with interface name: {} and version: {}", className, version);
+                return null;
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("service class: [{}], method name: [{}], parameter types: {}, parameters: {}", method.getServiceBean().getClass().getName(),
+                    method.getMethodName(), Arrays.toString(method.getParameterTypes()), Arrays.toString(request.getParameters()));
+        }
+        return method;
     }
 
     @Override
@@ -0,0 +1,26 @@
+package com.leisurexi.rpc.server.core;
+
+import com.leisurexi.rpc.common.codec.RpcRequest;
+import com.leisurexi.rpc.common.filter.RpcInvocation;
+
+/**
+ * 服务端的一次调用，携带已经定位到的服务方法，过滤器链的末端直接调用
+ *
+ * @author: leisurexi
+ * @date: 2020-08-26 4:02 下午
+ */
+class ServiceInvocation extends RpcInvocation {
+
+    private final ServiceMethodRegistry.ServiceMethod serviceMethod;
+
+    ServiceInvocation(ServiceMethodRegistry.ServiceMethod serviceMethod, RpcRequest request) {
+        super(serviceMethod.getServiceKey(), serviceMethod.getMethodKey(), serviceMethod.getInterfaceName(),
+                serviceMethod.getMethodName(), serviceMethod.getParameterTypes(), request);
+        this.serviceMethod = serviceMethod;
+    }
+
+    ServiceMethodRegistry.ServiceMethod getServiceMethod() {
+        return serviceMethod;
+    }
+
+}
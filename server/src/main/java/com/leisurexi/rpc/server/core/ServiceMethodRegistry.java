@@ -0,0 +1,150 @@
+package com.leisurexi.rpc.server.core;
+
+import com.leisurexi.rpc.common.codec.RpcMethodTable;
+import com.leisurexi.rpc.common.util.ServiceKeyUtils;
+import com.leisurexi.rpc.server.invoker.InvokerType;
+import com.leisurexi.rpc.server.invoker.MethodInvoker;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 服务方法注册表，为每个发布的 (服务, 版本, 方法签名) 分配一个整数id，
+ * 并在发布时预先创建好方法调用器，请求只需携带方法id即可定位到服务方法
+ *
+ * @author: leisurexi
+ * @date: 2020-08-20 3:41 下午
+ */
+@Slf4j
+public class ServiceMethodRegistry {
+
+    /**
+     * 下标为 方法id - 1
+     */
+    private volatile ServiceMethod[] methods = new ServiceMethod[0];
+
+    /**
+     * 握手时下发给客户端的方法id表
+     */
+    private volatile RpcMethodTable methodTable = new RpcMethodTable();
+
+    /**
+     * 方法调用方式，需要在注册服务之前设置
+     */
+    private volatile InvokerType invokerType = InvokerType.METHOD_HANDLE;
+
+    /**
+     * 注册服务下的所有接口方法
+     *
+     * @param serviceKey    业务 key
+     * @param interfaceName 接口名称
+     * @param serviceBean   bean 实例
+     * @throws IllegalArgumentException 接口无法加载，或 bean 没有实现该接口
+     */
+    public synchronized void register(String serviceKey, String interfaceName, Object serviceBean) {
+        Class<?> interfaceClass;
+        try {
+            interfaceClass = ClassUtils.forName(interfaceName, serviceBean.getClass().getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Can not load interface [" + interfaceName + "] of service [" + serviceKey + "]", e);
+        }
+        if (!interfaceClass.isInstance(serviceBean)) {
+            throw new IllegalArgumentException("Service bean [" + serviceBean.getClass().getName()
+                    + "] does not implement [" + interfaceName + "]");
+        }
+        List<ServiceMethod> methodList = new ArrayList<>(Arrays.asList(methods));
+        RpcMethodTable table = new RpcMethodTable();
+        table.getMethodIds().putAll(methodTable.getMethodIds());
+        for (Method method : interfaceClass.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                // 接口的静态方法不属于服务实例，不能远程调用
+                continue;
+            }
+            String methodKey = ServiceKeyUtils.buildMethodKey(serviceKey, method.getName(), method.getParameterTypes());
+            ServiceMethod serviceMethod = new ServiceMethod(serviceKey, methodKey, interfaceName, serviceBean, method.getName(),
+                    method.getParameterTypes(), invokerType.createInvoker(serviceBean, method));
+            Integer methodId = table.getMethodIds().get(methodKey);
+            if (methodId != null) {
+                // 重复发布同一个服务时沿用原来的方法id
+                methodList.set(methodId - 1, serviceMethod);
+                continue;
+            }
+            methodList.add(serviceMethod);
+            table.getMethodIds().put(methodKey, methodList.size());
+        }
+        this.methods = methodList.toArray(new ServiceMethod[0]);
+        this.methodTable = table;
+    }
+
+    /**
+     * 根据方法id获取服务方法
+     *
+     * @param methodId 方法id
+     * @return 服务方法，不存在时返回 null
+     */
+    public ServiceMethod getMethod(int methodId) {
+        ServiceMethod[] methods = this.methods;
+        if (methodId <= 0 || methodId > methods.length) {
+            return null;
+        }
+        return methods[methodId - 1];
+    }
+
+    /**
+     * 根据方法 key 获取服务方法，用于握手完成前的请求
+     *
+     * @param methodKey 方法 key
+     * @return 服务方法，不存在时返回 null
+     */
+    public ServiceMethod getMethod(String methodKey) {
+        return getMethod(methodTable.getMethodId(methodKey));
+    }
+
+    public RpcMethodTable getMethodTable() {
+        return methodTable;
+    }
+
+    public void setInvokerType(InvokerType invokerType) {
+        this.invokerType = invokerType;
+    }
+
+    /**
+     * 已注册的服务方法
+     */
+    @Getter
+    public static class ServiceMethod {
+
+        private final String serviceKey;
+
+        private final String methodKey;
+
+        private final String interfaceName;
+
+        private final Object serviceBean;
+
+        private final String methodName;
+
+        private final Class<?>[] parameterTypes;
+
+        private final MethodInvoker invoker;
+
+        ServiceMethod(String serviceKey, String methodKey, String interfaceName, Object serviceBean, String methodName,
+                      Class<?>[] parameterTypes, MethodInvoker invoker) {
+            this.serviceKey = serviceKey;
+            this.methodKey = methodKey;
+            this.interfaceName = interfaceName;
+            this.serviceBean = serviceBean;
+            this.methodName = methodName;
+            this.parameterTypes = parameterTypes;
+            this.invoker = invoker;
+        }
+
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.leisurexi.rpc.server.executor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 业务请求分发执行器，整个服务端所有连接共享同一个实例
+ *
+ * @author: leisurexi
+ * @date: 2020-08-22 10:03 上午
+ */
+public interface DispatchExecutor extends Executor {
+
+    /**
+     * 等待执行的请求数
+     */
+    int getQueueSize();
+
+    /**
+     * 正在执行的请求数
+     */
+    int getActiveCount();
+
+    /**
+     * 被拒绝的请求总数
+     */
+    long getRejectedCount();
+
+    /**
+     * 关闭执行器
+     */
+    void shutdown();
+
+}
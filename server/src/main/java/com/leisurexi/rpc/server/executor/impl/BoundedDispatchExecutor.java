@@ -0,0 +1,75 @@
+package com.leisurexi.rpc.server.executor.impl;
+
+import com.leisurexi.rpc.common.util.ThreadPoolUtils;
+import com.leisurexi.rpc.server.executor.DispatchExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界线程池实现，线程数和等待队列长度都有上限，超出时拒绝请求
+ *
+ * @author: leisurexi
+ * @date: 2020-08-22 10:11 上午
+ */
+public class BoundedDispatchExecutor implements DispatchExecutor {
+
+    /**
+     * 默认核心线程数
+     */
+    public static final int DEFAULT_CORE_POOL_SIZE = Math.max(16, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * 默认最大线程数
+     */
+    public static final int DEFAULT_MAX_POOL_SIZE = 200;
+
+    /**
+     * 默认等待队列长度
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final ThreadPoolExecutor threadPoolExecutor;
+
+    public BoundedDispatchExecutor() {
+        this(DEFAULT_CORE_POOL_SIZE, DEFAULT_MAX_POOL_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public BoundedDispatchExecutor(int corePoolSize, int maxPoolSize, int queueCapacity) {
+        this.threadPoolExecutor = ThreadPoolUtils.createThreadPool("server", corePoolSize, maxPoolSize, queueCapacity,
+                (r, executor) -> {
+                    rejectedCount.increment();
+                    throw new RejectedExecutionException("Server dispatch executor is exhausted, active: "
+                            + executor.getActiveCount() + ", queue: " + executor.getQueue().size());
+                });
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        threadPoolExecutor.execute(command);
+    }
+
+    @Override
+    public int getQueueSize() {
+        return threadPoolExecutor.getQueue().size();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return threadPoolExecutor.getActiveCount();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        threadPoolExecutor.shutdown();
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.leisurexi.rpc.server.executor.impl;
+
+import com.leisurexi.rpc.server.executor.DispatchExecutor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 直接在 IO 线程中执行请求，省去线程切换的开销，
+ * 只适用于所有服务方法都不会阻塞的场景，否则会拖慢同一 IO 线程上的所有连接
+ *
+ * @author: leisurexi
+ * @date: 2020-08-22 10:35 上午
+ */
+public class DirectDispatchExecutor implements DispatchExecutor {
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    @Override
+    public void execute(Runnable command) {
+        activeCount.incrementAndGet();
+        try {
+            command.run();
+        } finally {
+            activeCount.decrementAndGet();
+        }
+    }
+
+    @Override
+    public int getQueueSize() {
+        return 0;
+    }
+
+    @Override
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return 0;
+    }
+
+    @Override
+    public void shutdown() {
+        // nothing to release
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.leisurexi.rpc.server.executor.impl;
+
+import com.leisurexi.rpc.common.util.ThreadPoolUtils;
+import com.leisurexi.rpc.server.executor.DispatchExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 每个请求一个虚拟线程的实现，适合阻塞在下游 IO 上的服务，需要 JDK 21 及以上版本
+ *
+ * @author: leisurexi
+ * @date: 2020-08-22 10:24 上午
+ */
+public class VirtualThreadDispatchExecutor implements DispatchExecutor {
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final ExecutorService executorService;
+
+    public VirtualThreadDispatchExecutor() {
+        this.executorService = ThreadPoolUtils.createVirtualThreadExecutor();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        activeCount.incrementAndGet();
+        try {
+            executorService.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    activeCount.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            activeCount.decrementAndGet();
+            rejectedCount.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getQueueSize() {
+        return 0;
+    }
+
+    @Override
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+}
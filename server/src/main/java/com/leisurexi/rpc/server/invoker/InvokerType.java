@@ -0,0 +1,55 @@
+package com.leisurexi.rpc.server.invoker;
+
+import com.leisurexi.rpc.server.invoker.impl.FastClassMethodInvoker;
+import com.leisurexi.rpc.server.invoker.impl.MethodHandleMethodInvoker;
+import com.leisurexi.rpc.server.invoker.impl.ReflectiveMethodInvoker;
+
+import java.lang.reflect.Method;
+
+/**
+ * 服务方法调用方式
+ *
+ * @author: leisurexi
+ * @date: 2020-08-21 10:12 上午
+ */
+public enum InvokerType {
+
+    /**
+     * JDK 反射调用
+     */
+    REFLECTIVE {
+        @Override
+        public MethodInvoker createInvoker(Object serviceBean, Method method) {
+            return new ReflectiveMethodInvoker(serviceBean, method);
+        }
+    },
+
+    /**
+     * Cglib FastClass 调用
+     */
+    FAST_CLASS {
+        @Override
+        public MethodInvoker createInvoker(Object serviceBean, Method method) {
+            return new FastClassMethodInvoker(serviceBean, method);
+        }
+    },
+
+    /**
+     * MethodHandle 调用
+     */
+    METHOD_HANDLE {
+        @Override
+        public MethodInvoker createInvoker(Object serviceBean, Method method) {
+            return new MethodHandleMethodInvoker(serviceBean, method);
+        }
+    };
+
+    /**
+     * 创建方法调用器
+     *
+     * @param serviceBean bean 实例
+     * @param method      接口方法
+     */
+    public abstract MethodInvoker createInvoker(Object serviceBean, Method method);
+
+}
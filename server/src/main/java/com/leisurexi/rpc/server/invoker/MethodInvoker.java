@@ -0,0 +1,21 @@
+package com.leisurexi.rpc.server.invoker;
+
+/**
+ * 服务方法调用器，在发布服务时为每个方法预先创建，
+ * 请求到来时直接调用，无需再查找方法
+ *
+ * @author: leisurexi
+ * @date: 2020-08-21 10:05 上午
+ */
+public interface MethodInvoker {
+
+    /**
+     * 调用服务方法
+     *
+     * @param parameters 参数数组
+     * @return 方法返回值
+     * @throws Throwable 服务方法抛出的异常
+     */
+    Object invoke(Object[] parameters) throws Throwable;
+
+}
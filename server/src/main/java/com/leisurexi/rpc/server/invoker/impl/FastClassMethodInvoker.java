@@ -0,0 +1,41 @@
+package com.leisurexi.rpc.server.invoker.impl;
+
+import com.leisurexi.rpc.server.invoker.MethodInvoker;
+import org.springframework.cglib.reflect.FastClass;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Cglib FastClass 调用实现，FastClass 和方法下标在创建时确定
+ *
+ * @author: leisurexi
+ * @date: 2020-08-21 10:26 上午
+ */
+public class FastClassMethodInvoker implements MethodInvoker {
+
+    private final Object serviceBean;
+
+    private final FastClass fastClass;
+
+    private final int methodIndex;
+
+    public FastClassMethodInvoker(Object serviceBean, Method method) {
+        this.serviceBean = serviceBean;
+        this.fastClass = FastClass.create(serviceBean.getClass());
+        this.methodIndex = fastClass.getIndex(method.getName(), method.getParameterTypes());
+        if (methodIndex < 0) {
+            throw new IllegalArgumentException("Can not find method " + method + " in " + serviceBean.getClass().getName());
+        }
+    }
+
+    @Override
+    public Object invoke(Object[] parameters) throws Throwable {
+        try {
+            return fastClass.invoke(methodIndex, serviceBean, parameters);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.leisurexi.rpc.server.invoker.impl;
+
+import com.leisurexi.rpc.server.invoker.MethodInvoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * MethodHandle 调用实现，创建时绑定 bean 实例并展开参数数组，
+ * 调用时使用 invokeExact 避免参数适配
+ *
+ * @author: leisurexi
+ * @date: 2020-08-21 10:31 上午
+ */
+public class MethodHandleMethodInvoker implements MethodInvoker {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private final MethodHandle methodHandle;
+
+    public MethodHandleMethodInvoker(Object serviceBean, Method method) {
+        try {
+            method.setAccessible(true);
+            this.methodHandle = MethodHandles.lookup().unreflect(method)
+                    .bindTo(serviceBean)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(INVOKER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Can not access method " + method, e);
+        }
+    }
+
+    @Override
+    public Object invoke(Object[] parameters) throws Throwable {
+        return (Object) methodHandle.invokeExact(parameters);
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.leisurexi.rpc.server.invoker.impl;
+
+import com.leisurexi.rpc.server.invoker.MethodInvoker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * JDK 反射调用实现
+ *
+ * @author: leisurexi
+ * @date: 2020-08-21 10:20 上午
+ */
+public class ReflectiveMethodInvoker implements MethodInvoker {
+
+    private final Object serviceBean;
+
+    private final Method method;
+
+    public ReflectiveMethodInvoker(Object serviceBean, Method method) {
+        this.serviceBean = serviceBean;
+        this.method = method;
+        this.method.setAccessible(true);
+    }
+
+    @Override
+    public Object invoke(Object[] parameters) throws Throwable {
+        try {
+            return method.invoke(serviceBean, parameters);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.leisurexi.rpc.test.benchmark;
+
+import com.leisurexi.rpc.common.codec.RpcDecoder;
+import com.leisurexi.rpc.common.codec.RpcEncoder;
+import com.leisurexi.rpc.common.codec.RpcResponse;
+import com.leisurexi.rpc.common.compress.CompressionType;
+import com.leisurexi.rpc.common.serializer.Serializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比不同压缩方式下小响应和大响应的编解码吞吐量，以及实际写到网络上的字节数
+ *
+ * @author: leisurexi
+ * @date: 2020-08-25 2:40 下午
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+    @Param({"NONE", "DEFLATE", "SNAPPY"})
+    private CompressionType compression;
+
+    /**
+     * 结果列表的元素个数
+     */
+    @Param({"10", "10000"})
+    private int resultSize;
+
+    private EmbeddedChannel encoderChannel;
+
+    private EmbeddedChannel decoderChannel;
+
+    private RpcResponse response;
+
+    @Setup
+    public void setup() {
+        encoderChannel = new EmbeddedChannel(new RpcEncoder(Serializer.DEFAULT));
+        decoderChannel = new EmbeddedChannel(new RpcDecoder(Serializer.DEFAULT));
+        List<String> result = new ArrayList<>(resultSize);
+        for (int i = 0; i < resultSize; i++) {
+            result.add("order-" + i + "-status-PAID");
+        }
+        response = new RpcResponse();
+        response.setRequestId(1L);
+        response.setCompression(compression);
+        response.setResult(result);
+
+        ByteBuf frame = writeFrame();
+        System.out.printf("%n[%s, resultSize=%d] bytes on wire: %d%n", compression, resultSize, frame.readableBytes());
+        frame.release();
+    }
+
+    @TearDown
+    public void tearDown() {
+        encoderChannel.finishAndReleaseAll();
+        decoderChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encode() {
+        ByteBuf frame = writeFrame();
+        int length = frame.readableBytes();
+        frame.release();
+        return length;
+    }
+
+    @Benchmark
+    public Object encodeAndDecode() {
+        decoderChannel.writeInbound(writeFrame());
+        return decoderChannel.readInbound();
+    }
+
+    private ByteBuf writeFrame() {
+        encoderChannel.writeOutbound(response);
+        return encoderChannel.readOutbound();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CompressionBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
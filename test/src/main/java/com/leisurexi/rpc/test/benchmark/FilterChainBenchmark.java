@@ -0,0 +1,86 @@
+package com.leisurexi.rpc.test.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.leisurexi.rpc.common.codec.RpcRequest;
+import com.leisurexi.rpc.common.filter.RpcFilter;
+import com.leisurexi.rpc.common.util.ServiceKeyUtils;
+import com.leisurexi.rpc.server.core.RpcServerHandler;
+import com.leisurexi.rpc.server.core.ServiceMethodRegistry;
+import com.leisurexi.rpc.server.executor.impl.DirectDispatchExecutor;
+import com.leisurexi.rpc.test.service.HelloService;
+import com.leisurexi.rpc.test.service.impl.HelloServiceImpl;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务端处理一个请求的耗时和内存分配随过滤器数量的变化，过滤器只是把调用传给下一个环节。
+ * 没有过滤器时直接调用服务方法，结果应与过滤器功能加入之前一致；配合 -prof gc 观察每次调用的分配量
+ *
+ * @author: leisurexi
+ * @date: 2020-08-26 5:10 下午
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterChainBenchmark {
+
+    @Param({"0", "1", "3"})
+    private int filterCount;
+
+    private EmbeddedChannel channel;
+
+    private RpcRequest request;
+
+    @Setup
+    public void setup() {
+        ((Logger) LoggerFactory.getLogger("com.leisurexi.rpc")).setLevel(Level.WARN);
+        ServiceMethodRegistry methodRegistry = new ServiceMethodRegistry();
+        String serviceKey = ServiceKeyUtils.buildServiceKey(HelloService.class.getName(), "1.0");
+        methodRegistry.register(serviceKey, HelloService.class.getName(), new HelloServiceImpl());
+        List<RpcFilter> filters = new ArrayList<>();
+        for (int i = 0; i < filterCount; i++) {
+            filters.add((invocation, next) -> next.invoke(invocation));
+        }
+        channel = new EmbeddedChannel(new RpcServerHandler(methodRegistry, new DirectDispatchExecutor(),
+                RpcServerHandler.buildFilterChain(filters)));
+        // 丢弃连接建立时下发的方法id表
+        channel.releaseOutbound();
+        request = new RpcRequest();
+        request.setRequestId(1);
+        request.setMethodId(methodRegistry.getMethodTable().getMethodId(
+                ServiceKeyUtils.buildMethodKey(serviceKey, "hello", new Class<?>[]{String.class})));
+        request.setParameters(new Object[]{"world"});
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public Object handle() {
+        channel.writeInbound(request);
+        return channel.readOutbound();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(FilterChainBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
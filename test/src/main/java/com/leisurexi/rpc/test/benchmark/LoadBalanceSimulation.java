@@ -0,0 +1,159 @@
+package com.leisurexi.rpc.test.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.leisurexi.rpc.client.connect.ConnectionManager;
+import com.leisurexi.rpc.client.connect.OutlierDetectionConfig;
+import com.leisurexi.rpc.client.proxy.ObjectProxy;
+import com.leisurexi.rpc.client.route.LoadBalanceType;
+import com.leisurexi.rpc.common.client.ProviderInfo;
+import com.leisurexi.rpc.common.compress.CompressionType;
+import com.leisurexi.rpc.server.core.NettyServer;
+import com.leisurexi.rpc.server.executor.impl.BoundedDispatchExecutor;
+import com.leisurexi.rpc.test.service.HelloService;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 模拟不同代际机器混合部署时各负载均衡策略的尾延迟：本地启动若干服务端，每个服务端的处理线程数相同，
+ * 但单个请求的处理时间不同，权重按处理能力发布。客户端以固定并发闭环调用，统计吞吐量和延迟分位数。
+ * <p>
+ * 参数: [并发调用数，默认 64] [每种策略持续秒数，默认 5] [各服务端处理时间(微秒)，逗号分隔，默认 1000,1000,1000,4000]
+ * <p>
+ * 客户端不经过注册中心，直接连接本地启动的服务端
+ *
+ * @author: leisurexi
+ * @date: 2020-08-27 5:10 下午
+ */
+public class LoadBalanceSimulation {
+
+    private static final String VERSION = "0.0.1";
+
+    private static final int BASE_PORT = 18870;
+
+    /**
+     * 每个服务端的处理线程数
+     */
+    private static final int SERVER_THREADS = 8;
+
+    /**
+     * 请求参数的取值个数，一致性哈希按参数路由
+     */
+    private static final int KEYS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long[] serviceMicros = Arrays.stream((args.length > 2 ? args[2] : "1000,1000,1000,4000").split(","))
+                .mapToLong(Long::parseLong).toArray();
+        ((Logger) LoggerFactory.getLogger("com.leisurexi.rpc")).setLevel(Level.WARN);
+        // 只比较负载均衡策略本身，慢节点不被摘除
+        ConnectionManager.getInstance().setOutlierDetectionConfig(OutlierDetectionConfig.DISABLED);
+
+        long slowest = Arrays.stream(serviceMicros).max().getAsLong();
+        List<ProviderInfo> providers = new ArrayList<>();
+        for (int i = 0; i < serviceMicros.length; i++) {
+            int port = BASE_PORT + i;
+            NettyServer server = new NettyServer("127.0.0.1:" + port, "127.0.0.1:2181");
+            server.setDispatchExecutor(new BoundedDispatchExecutor(SERVER_THREADS, SERVER_THREADS, 100000));
+            server.addService(HelloService.class.getName(), VERSION, new DelayedHelloService(serviceMicros[i]));
+            server.start();
+            // 权重与处理能力成正比
+            providers.add(ProviderInfo.builder()
+                    .uuid("simulation-" + i)
+                    .host("127.0.0.1")
+                    .port(port)
+                    .serviceName(HelloService.class.getName())
+                    .version(VERSION)
+                    .weight((int) (100 * slowest / serviceMicros[i]))
+                    .build());
+        }
+        TimeUnit.SECONDS.sleep(1);
+        ConnectionManager.getInstance().updateConnectedServer(providers);
+
+        System.out.printf("servers(us)=%s, concurrency=%d, duration=%ds%n", Arrays.toString(serviceMicros), concurrency, seconds);
+        for (LoadBalanceType type : LoadBalanceType.values()) {
+            run(type, concurrency, seconds);
+        }
+        System.exit(0);
+    }
+
+    private static void run(LoadBalanceType type, int concurrency, int seconds) throws Exception {
+        HelloService service = (HelloService) Proxy.newProxyInstance(HelloService.class.getClassLoader(),
+                new Class<?>[]{HelloService.class}, new ObjectProxy<>(HelloService.class, VERSION, CompressionType.NONE, type));
+        // 预热
+        for (int i = 0; i < 1000; i++) {
+            service.hello("warmup");
+        }
+        String[] keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "simulation-" + i;
+        }
+        ExecutorService callers = Executors.newFixedThreadPool(concurrency);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(callers.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                long now;
+                while ((now = System.nanoTime()) < deadline) {
+                    service.hello(keys[ThreadLocalRandom.current().nextInt(KEYS)]);
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - now;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        callers.shutdown();
+        Arrays.sort(all);
+        System.out.printf("%-20s throughput=%8.1f calls/s  p50=%6.2fms  p99=%6.2fms  p999=%6.2fms  max=%6.2fms%n",
+                type, all.length / (double) seconds, percentile(all, 0.5), percentile(all, 0.99),
+                percentile(all, 0.999), all[all.length - 1] / 1e6);
+        TimeUnit.SECONDS.sleep(1);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * 每个请求固定处理一段时间的服务，模拟不同处理能力的机器
+     */
+    private static class DelayedHelloService implements HelloService {
+
+        private final long serviceNanos;
+
+        DelayedHelloService(long serviceMicros) {
+            this.serviceNanos = TimeUnit.MICROSECONDS.toNanos(serviceMicros);
+        }
+
+        @Override
+        public String hello(String name) {
+            LockSupport.parkNanos(serviceNanos);
+            return "Hello! " + name;
+        }
+
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.leisurexi.rpc.test.benchmark;
+
+import com.leisurexi.rpc.server.invoker.InvokerType;
+import com.leisurexi.rpc.server.invoker.MethodInvoker;
+import com.leisurexi.rpc.test.service.HelloService;
+import com.leisurexi.rpc.test.service.impl.HelloServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比反射、FastClass、MethodHandle 三种服务方法调用方式的性能
+ *
+ * @author: leisurexi
+ * @date: 2020-08-21 2:15 下午
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MethodInvokerBenchmark {
+
+    @Param({"REFLECTIVE", "FAST_CLASS", "METHOD_HANDLE"})
+    private InvokerType invokerType;
+
+    private MethodInvoker invoker;
+
+    private Object[] parameters;
+
+    @Setup
+    public void setup() throws Exception {
+        invoker = invokerType.createInvoker(new HelloServiceImpl(), HelloService.class.getMethod("hello", String.class));
+        parameters = new Object[]{"world"};
+    }
+
+    @Benchmark
+    public Object invoke() throws Throwable {
+        return invoker.invoke(parameters);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MethodInvokerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.leisurexi.rpc.test.benchmark;
+
+import com.leisurexi.rpc.client.connect.ConnectionPool;
+import com.leisurexi.rpc.client.route.ProviderNode;
+import com.leisurexi.rpc.client.route.RoutingTable;
+import com.leisurexi.rpc.client.route.RpcLoadBalance;
+import com.leisurexi.rpc.client.route.impl.RpcLoadBalanceRoundRobin;
+import com.leisurexi.rpc.common.client.ProviderInfo;
+import com.leisurexi.rpc.common.util.ServiceKeyUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对比每次调用按已连接节点临时构建服务 Map 与查询预先构建的路由表两种选择服务提供者的方式，
+ * 共 1000 个服务提供者，分布在 100 个服务上
+ *
+ * @author: leisurexi
+ * @date: 2020-08-26 11:20 上午
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoutingTableBenchmark {
+
+    private static final int SERVICES = 100;
+
+    private static final int PROVIDERS = 1000;
+
+    private Map<ProviderInfo, ConnectionPool> connectedServerNodes;
+
+    private RoutingTable routingTable;
+
+    private RpcLoadBalance loadBalance;
+
+    private String[] serviceKeys;
+
+    private AtomicInteger roundRobin;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        connectedServerNodes = new HashMap<>();
+        for (int i = 0; i < PROVIDERS; i++) {
+            ProviderInfo providerInfo = ProviderInfo.builder()
+                    .uuid("provider-" + i)
+                    .host("10.0." + (i / 250) + "." + (i % 250))
+                    .port(18866)
+                    .serviceName("com.leisurexi.rpc.test.service.Service" + (i % SERVICES))
+                    .version("1.0")
+                    .build();
+            connectedServerNodes.put(providerInfo, null);
+        }
+        routingTable = RoutingTable.build(connectedServerNodes);
+        loadBalance = new RpcLoadBalanceRoundRobin();
+        serviceKeys = new String[SERVICES];
+        for (int i = 0; i < SERVICES; i++) {
+            serviceKeys[i] = ServiceKeyUtils.buildServiceKey("com.leisurexi.rpc.test.service.Service" + i, "1.0");
+        }
+        roundRobin = new AtomicInteger();
+    }
+
+    /**
+     * 原来的方式：每次选择都遍历所有已连接节点，重新分组后轮询
+     */
+    @Benchmark
+    public ProviderInfo serviceMap() {
+        String serviceKey = nextServiceKey();
+        Map<String, List<ProviderInfo>> serviceMap = new HashMap<>();
+        for (ProviderInfo providerInfo : connectedServerNodes.keySet()) {
+            String key = ServiceKeyUtils.buildServiceKey(providerInfo.getServiceName(), providerInfo.getVersion());
+            serviceMap.computeIfAbsent(key, k -> new ArrayList<>()).add(providerInfo);
+        }
+        List<ProviderInfo> addressList = serviceMap.get(serviceKey);
+        int index = (roundRobin.getAndIncrement() & Integer.MAX_VALUE) % addressList.size();
+        return addressList.get(index);
+    }
+
+    @Benchmark
+    public ProviderNode routingTable() throws Exception {
+        return loadBalance.select(nextServiceKey(), routingTable);
+    }
+
+    private String nextServiceKey() {
+        String serviceKey = serviceKeys[next];
+        next = next + 1 == SERVICES ? 0 : next + 1;
+        return serviceKey;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RoutingTableBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.leisurexi.rpc.test.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.leisurexi.rpc.client.RpcClient;
+import com.leisurexi.rpc.client.connect.ConnectionManager;
+import com.leisurexi.rpc.client.proxy.ObjectProxy;
+import com.leisurexi.rpc.common.client.ProviderInfo;
+import com.leisurexi.rpc.common.util.ThreadPoolUtils;
+import com.leisurexi.rpc.server.core.NettyServer;
+import com.leisurexi.rpc.server.executor.impl.BoundedDispatchExecutor;
+import com.leisurexi.rpc.test.service.BlockingService;
+import com.leisurexi.rpc.test.service.impl.BlockingServiceImpl;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对比虚拟线程模式和平台线程池在大量并发阻塞调用下的吞吐量，虚拟线程模式需要 JDK 21 及以上版本。
+ * <p>
+ * 参数: [virtual|platform] [并发调用数，默认 10000] [持续秒数，默认 10] [服务端阻塞毫秒数，默认 20]
+ * <p>
+ * 客户端不经过注册中心，直接连接本地启动的服务端
+ *
+ * @author: leisurexi
+ * @date: 2020-08-22 3:20 下午
+ */
+public class VirtualThreadBenchmark {
+
+    private static final String VERSION = "0.0.1";
+
+    public static void main(String[] args) throws Exception {
+        boolean virtual = args.length < 1 || "virtual".equals(args[0]);
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        long delayMillis = args.length > 3 ? Long.parseLong(args[3]) : 20;
+        if (virtual && !ThreadPoolUtils.isVirtualThreadSupported()) {
+            System.out.println("Virtual threads require JDK 21 or later");
+            return;
+        }
+        ((Logger) LoggerFactory.getLogger("com.leisurexi.rpc")).setLevel(Level.WARN);
+
+        String serverAddress = "127.0.0.1:18866";
+        NettyServer server = new NettyServer(serverAddress, "127.0.0.1:2181");
+        if (virtual) {
+            server.setVirtualThreadEnabled(true);
+        } else {
+            server.setDispatchExecutor(new BoundedDispatchExecutor(BoundedDispatchExecutor.DEFAULT_MAX_POOL_SIZE,
+                    BoundedDispatchExecutor.DEFAULT_MAX_POOL_SIZE, concurrency));
+        }
+        server.addService(BlockingService.class.getName(), VERSION, new BlockingServiceImpl());
+        server.start();
+        TimeUnit.SECONDS.sleep(1);
+
+        ProviderInfo providerInfo = ProviderInfo.builder()
+                .uuid("benchmark")
+                .host("127.0.0.1")
+                .port(18866)
+                .serviceName(BlockingService.class.getName())
+                .version(VERSION)
+                .build();
+        ConnectionManager.getInstance().updateConnectedServer(Collections.singletonList(providerInfo));
+        RpcClient client = new RpcClient(null);
+        client.setVirtualThreadEnabled(virtual);
+        BlockingService service = (BlockingService) Proxy.newProxyInstance(BlockingService.class.getClassLoader(),
+                new Class<?>[]{BlockingService.class}, new ObjectProxy<>(BlockingService.class, VERSION));
+        service.call("warmup", 0);
+
+        ExecutorService callers = virtual ? ThreadPoolUtils.createVirtualThreadExecutor() : Executors.newFixedThreadPool(concurrency);
+        LongAdder completed = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (int i = 0; i < concurrency; i++) {
+            callers.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    try {
+                        service.call("benchmark", delayMillis);
+                        completed.increment();
+                    } catch (Throwable e) {
+                        failed.increment();
+                    }
+                }
+            });
+        }
+        callers.shutdown();
+        callers.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+        System.out.printf("mode=%s, concurrency=%d, delay=%dms, completed=%d, failed=%d, throughput=%.1f calls/s%n",
+                virtual ? "virtual" : "platform", concurrency, delayMillis, completed.sum(), failed.sum(),
+                completed.sum() / (double) seconds);
+        client.stop();
+        System.exit(0);
+    }
+
+}
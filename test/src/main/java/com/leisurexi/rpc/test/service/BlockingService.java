@@ -0,0 +1,13 @@
+package com.leisurexi.rpc.test.service;
+
+/**
+ * 模拟阻塞在下游 IO 上的服务
+ *
+ * @author: leisurexi
+ * @date: 2020-08-22 3:10 下午
+ */
+public interface BlockingService {
+
+    String call(String name, long delayMillis);
+
+}
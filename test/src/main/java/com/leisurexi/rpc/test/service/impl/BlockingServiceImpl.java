@@ -0,0 +1,21 @@
+package com.leisurexi.rpc.test.service.impl;
+
+import com.leisurexi.rpc.test.service.BlockingService;
+
+/**
+ * @author: leisurexi
+ * @date: 2020-08-22 3:12 下午
+ */
+public class BlockingServiceImpl implements BlockingService {
+
+    @Override
+    public String call(String name, long delayMillis) {
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return name;
+    }
+
+}